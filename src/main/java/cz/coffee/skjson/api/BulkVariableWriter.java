@@ -0,0 +1,194 @@
+package cz.coffee.skjson.api;
+
+import ch.njol.skript.variables.Variables;
+import com.google.gson.JsonElement;
+import org.bukkit.event.Event;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static ch.njol.skript.lang.Variable.SEPARATOR;
+
+/**
+ * Writer of many variables of one list at once.
+ * <p>
+ * The variables are collected into a detached structure (the same tree of {@link TreeMap}s Skript uses for
+ * list variables) by {@link Node#set(String, Object)}, nothing is written before {@link #commit(Event)}. The commit
+ * of local variables merges the tree into the local variables of the event directly (through
+ * {@link SkriptReflection}), instead of splitting the name and walking the tree for each variable.
+ * Global variables (and local variables when Skript's internals can't be accessed) are committed by
+ * {@link Variables#setVariable}, so they are still saved by Skript.
+ * <p>
+ * The collecting doesn't touch Skript, so it can be done on any thread, the commit has to be done
+ * on the thread of the event.
+ * Only plain values (texts, numbers, booleans, jsons) are merged directly, other values (items, locations...)
+ * are committed by {@link Variables#setVariable}, which converts them to their serializable type.
+ */
+public class BulkVariableWriter {
+
+    private final String name;
+    private final boolean local;
+    private final boolean direct;
+    private final TreeMap<String, Object> tree;
+    private final Map<String, Object> values = new LinkedHashMap<>();
+    private final Map<String, Object> others = new LinkedHashMap<>();
+
+    /**
+     * @param name  the name of the list without {@code ::*}, e.g. {@code data}
+     * @param local whether the list is local
+     */
+    public BulkVariableWriter(@NotNull String name, boolean local) {
+        this.name = SkriptReflection.normalizeVariableName(name);
+        this.local = local;
+        this.direct = local && SkriptReflection.canAccessVariablesMap();
+        this.tree = direct ? new TreeMap<>(SkriptReflection.variableNameComparator()) : null;
+    }
+
+    /**
+     * The node of the list itself.
+     */
+    public Node root() {
+        return new Node(name + SEPARATOR, tree);
+    }
+
+    /**
+     * Count of the collected variables.
+     */
+    public int size() {
+        return values.size() + others.size();
+    }
+
+    /**
+     * Value which is created on {@link #commit(Event)}, e.g. objects which can be created only on the server thread.
+     * When the supplier gives null, the fallback collects the variable as a list instead.
+     */
+    private record Deferred(Supplier<?> supplier, Consumer<Node> fallback) {
+    }
+
+    private static boolean isPlain(Object value) {
+        return value instanceof String || value instanceof Number || value instanceof Boolean || value instanceof JsonElement;
+    }
+
+    /**
+     * Node of the list, the names of its variables are the name of the node and a key.
+     */
+    public final class Node {
+        private final String prefix;
+        private final TreeMap<String, Object> map;
+
+        private Node(String prefix, TreeMap<String, Object> map) {
+            this.prefix = prefix;
+            this.map = map;
+        }
+
+        public Node child(@NotNull String key) {
+            key = SkriptReflection.normalizeVariableName(key);
+            TreeMap<String, Object> child = null;
+            if (map != null) {
+                Object node = map.get(key);
+                if (node instanceof TreeMap<?, ?>) {
+                    //noinspection unchecked
+                    child = (TreeMap<String, Object>) node;
+                } else {
+                    child = new TreeMap<>(SkriptReflection.variableNameComparator());
+                    if (node != null) child.put(null, node);
+                    map.put(key, child);
+                }
+            }
+            return new Node(prefix + key + SEPARATOR, child);
+        }
+
+        public void set(@NotNull String key, Object value) {
+            if (value == null) return;
+            key = SkriptReflection.normalizeVariableName(key);
+            if (map == null || !isPlain(value)) {
+                others.put(prefix + key, value);
+            } else {
+                values.put(prefix + key, value);
+                Object node = map.get(key);
+                if (node instanceof TreeMap<?, ?> child) {
+                    //noinspection unchecked
+                    ((TreeMap<String, Object>) child).put(null, value);
+                } else {
+                    map.put(key, value);
+                }
+            }
+        }
+
+        /**
+         * Set the variable to the value of the supplier, the supplier is called on {@link #commit(Event)}.
+         * When it gives null, the variable is a list collected by the fallback on the commit.
+         */
+        public void defer(@NotNull String key, @NotNull Supplier<?> value, @NotNull Consumer<Node> fallback) {
+            others.put(prefix + SkriptReflection.normalizeVariableName(key), new Deferred(value, fallback));
+        }
+    }
+
+    /**
+     * Write the collected variables, has to be called on the thread of the event.
+     *
+     * @param event the event
+     */
+    public void commit(@NotNull Event event) {
+        if (!values.isEmpty()) mergeValues(event);
+        others.forEach((variable, value) -> {
+            if (value instanceof Deferred deferred) {
+                value = deferred.supplier().get();
+                if (value == null) {
+                    BulkVariableWriter list = new BulkVariableWriter(variable, local);
+                    deferred.fallback().accept(list.root());
+                    list.commit(event);
+                    return;
+                }
+            }
+            if (value != null) Variables.setVariable(variable, value, event, local);
+        });
+    }
+
+    private void mergeValues(Event event) {
+        Object locals = SkriptReflection.getOrCreateLocals(event);
+        SkriptReflection.variablesHashMap(locals).putAll(values);
+        TreeMap<String, Object> parent = SkriptReflection.variablesTreeMap(locals);
+        String[] path = Variables.splitVariableName(name);
+        for (String key : path) {
+            Object node = parent.get(key);
+            if (node instanceof TreeMap<?, ?>) {
+                //noinspection unchecked
+                parent = (TreeMap<String, Object>) node;
+            } else {
+                TreeMap<String, Object> child = new TreeMap<>(SkriptReflection.variableNameComparator());
+                if (node != null) child.put(null, node);
+                parent.put(key, child);
+                parent = child;
+            }
+        }
+        merge(parent, tree);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void merge(TreeMap<String, Object> target, TreeMap<String, Object> source) {
+        for (Map.Entry<String, Object> entry : source.entrySet()) {
+            String key = entry.getKey();
+            Object value = entry.getValue();
+            Object existing = target.get(key);
+            if (value instanceof TreeMap<?, ?> map) {
+                TreeMap<String, Object> subtree = (TreeMap<String, Object>) map;
+                if (subtree.isEmpty()) continue;
+                if (existing instanceof TreeMap<?, ?> existingMap) {
+                    merge((TreeMap<String, Object>) existingMap, subtree);
+                } else {
+                    if (existing != null) subtree.putIfAbsent(null, existing);
+                    target.put(key, subtree);
+                }
+            } else if (key != null && existing instanceof TreeMap<?, ?> existingMap) {
+                ((TreeMap<String, Object>) existingMap).put(null, value);
+            } else {
+                target.put(key, value);
+            }
+        }
+    }
+}
@@ -10,6 +10,7 @@ import cz.coffee.skjson.SkJson;
 import cz.coffee.skjson.api.Cache.JsonCache;
 import cz.coffee.skjson.api.Cache.JsonWatcher;
 import cz.coffee.skjson.api.Update.UpdateCheck;
+import cz.coffee.skjson.parser.ItemCache;
 import org.bstats.bukkit.Metrics;
 import org.bstats.charts.SimplePie;
 import org.bukkit.Bukkit;
@@ -50,7 +51,15 @@ public class Config {
             Map.entry("WATCHER_PREFIX", "prefixes-watcher"),
             Map.entry("REQUESTS_PREFIX", "prefixes-request"),
             Map.entry("WEBHOOK_PREFIX", "prefixes-webhook"),
-            Map.entry("PATH_VARIABLE_DELIMITER", "path-delimiter")
+            Map.entry("PATH_VARIABLE_DELIMITER", "path-delimiter"),
+            Map.entry("FEATURE_STRUCTURAL_HASH", "features-structural-hash"),
+            Map.entry("PARALLEL_THRESHOLD", "parallel-threshold"),
+            Map.entry("FEATURE_ITEM_CACHE", "features-item-cache"),
+            Map.entry("ITEM_CACHE_SIZE", "item-cache-size"),
+            Map.entry("NBT_ARRAY_THRESHOLD", "nbt-array-threshold"),
+            Map.entry("LOOP_TICK_BUDGET", "loop-tick-budget"),
+            Map.entry("SERIALIZER_INCLUDE", "serializer-include"),
+            Map.entry("SERIALIZER_EXCLUDE", "serializer-exclude")
     ));
     public static YamlConfiguration pluginYaml;
     public static ConcurrentHashMap<File, JsonWatcher> watcherCache = new ConcurrentHashMap<>();
@@ -206,6 +215,10 @@ public class Config {
         return this.config.getInt("settings." + setting);
     }
 
+    private List<String> getList(String setting) {
+        return this.config.getStringList("settings." + setting);
+    }
+
     private long getLong(String setting) {
         return this.config.getLong("settings." + setting);
     }
@@ -229,12 +242,22 @@ public class Config {
             PROJECT_DEBUG = getSetting("debug");
             LOGGING_LEVEL = getInt("logging-level");
             DEFAULT_WATCHER_INTERVAL = getLong("watcher-interval");
+            PARALLEL_THRESHOLD = getInt("parallel-threshold");
             PLUGIN_PREFIX = getPrefix("plugin");
             ERROR_PREFIX = getPrefix("error");
             WATCHER_PREFIX = getPrefix("watcher");
             REQUESTS_PREFIX = getPrefix("request");
             WEBHOOK_PREFIX = getPrefix("webhook");
             PATH_VARIABLE_DELIMITER = getString("path-delimiter");
+            FEATURE_STRUCTURAL_HASH = getFeatures("structural-hash");
+            FEATURE_ITEM_CACHE = getFeatures("item-cache");
+            ITEM_CACHE_SIZE = getInt("item-cache-size");
+            ItemCache.configure();
+            NBT_ARRAY_THRESHOLD = getInt("nbt-array-threshold");
+            LOOP_TICK_BUDGET = getInt("loop-tick-budget");
+            SERIALIZER_INCLUDE = getList("serializer.include");
+            SERIALIZER_EXCLUDE = getList("serializer.exclude");
+            DynamicObjectSerializer.configure();
 
             if (PATH_VARIABLE_DELIMITER.matches("[$#^\\[\\]{}_-]")) {
                 info("The delimiter contains not allowed unicodes.. '$#^\\/[]{}_-'");
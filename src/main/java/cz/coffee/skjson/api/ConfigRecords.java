@@ -1,5 +1,7 @@
 package cz.coffee.skjson.api;
 
+import java.util.List;
+
 public abstract class ConfigRecords {
     public static String PATH_VARIABLE_DELIMITER;
     public static boolean PROJECT_DEBUG;
@@ -11,5 +13,13 @@ public abstract class ConfigRecords {
     public static String REQUESTS_PREFIX;
     public static String WEBHOOK_PREFIX;
     public static Double CONFIG_VERSION;
+    public static boolean FEATURE_STRUCTURAL_HASH;
+    public static int PARALLEL_THRESHOLD;
+    public static boolean FEATURE_ITEM_CACHE;
+    public static int ITEM_CACHE_SIZE;
+    public static int NBT_ARRAY_THRESHOLD;
+    public static int LOOP_TICK_BUDGET;
+    public static List<String> SERIALIZER_INCLUDE;
+    public static List<String> SERIALIZER_EXCLUDE;
 
 }
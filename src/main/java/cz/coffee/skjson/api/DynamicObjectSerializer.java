@@ -3,24 +3,117 @@ package cz.coffee.skjson.api;
 import com.google.gson.*;
 import cz.coffee.skjson.utils.Logger;
 
-import java.lang.reflect.Constructor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
+import static cz.coffee.skjson.api.ConfigRecords.SERIALIZER_EXCLUDE;
+import static cz.coffee.skjson.api.ConfigRecords.SERIALIZER_INCLUDE;
+
+/**
+ * Field by field serializer of objects (players).
+ * <p>
+ * The fields of a class are resolved once and read / written through {@link VarHandle}s. Static fields and
+ * the fields of {@code settings.serializer.exclude} are skipped, when {@code settings.serializer.include}
+ * isn't empty only its fields are serialized. Both lists take field names ({@code handle}) or fields of
+ * one class ({@code CraftPlayer.handle}).
+ */
 @SuppressWarnings("unchecked")
 public class DynamicObjectSerializer<T> implements JsonSerializer<T>, JsonDeserializer<T> {
 
+    /**
+     * One field, the handle is null when the field can't be accessed by a handle (it's then used by reflection).
+     */
+    private record Accessor(String name, Class<?> type, VarHandle handle, Field field, boolean writable) {
+        Object get(Object source) throws IllegalAccessException {
+            return handle != null ? handle.get(source) : field.get(source);
+        }
+
+        void set(Object target, Object value) throws IllegalAccessException {
+            if (value == null && type.isPrimitive()) return;
+            if (writable) handle.set(target, value);
+            else field.set(target, value);
+        }
+    }
+
+    private record Metadata(List<Accessor> accessors, MethodHandle constructor) {
+    }
+
+    private static volatile ClassValue<Metadata> metadata = newResolver();
+
+    /**
+     * Drop the resolved classes, called on config (re)load, when the include/exclude lists may change.
+     */
+    public static void configure() {
+        metadata = newResolver();
+    }
+
+    private static ClassValue<Metadata> newResolver() {
+        final Set<String> include = SERIALIZER_INCLUDE == null ? Set.of() : new HashSet<>(SERIALIZER_INCLUDE);
+        final Set<String> exclude = SERIALIZER_EXCLUDE == null ? Set.of() : new HashSet<>(SERIALIZER_EXCLUDE);
+        return new ClassValue<>() {
+            @Override
+            protected Metadata computeValue(Class<?> type) {
+                return resolve(type, include, exclude);
+            }
+        };
+    }
+
+    private static boolean listed(Set<String> names, Field field) {
+        return names.contains(field.getName()) || names.contains(field.getDeclaringClass().getSimpleName() + "." + field.getName());
+    }
+
+    private static Metadata resolve(Class<?> type, Set<String> include, Set<String> exclude) {
+        List<Accessor> accessors = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        for (Class<?> clazz = type; clazz != null; clazz = clazz.getSuperclass()) {
+            for (Field field : clazz.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic() || !names.add(field.getName())) continue;
+                if (!include.isEmpty() && !listed(include, field)) continue;
+                if (listed(exclude, field)) continue;
+                Accessor accessor = accessor(field);
+                if (accessor != null) accessors.add(accessor);
+            }
+        }
+        MethodHandle constructor;
+        try {
+            constructor = MethodHandles.privateLookupIn(type, MethodHandles.lookup()).findConstructor(type, MethodType.methodType(void.class));
+        } catch (ReflectiveOperationException | RuntimeException ignored) {
+            constructor = null;
+        }
+        return new Metadata(List.copyOf(accessors), constructor);
+    }
+
+    private static Accessor accessor(Field field) {
+        boolean writable = !Modifier.isFinal(field.getModifiers());
+        try {
+            VarHandle handle = MethodHandles.privateLookupIn(field.getDeclaringClass(), MethodHandles.lookup()).unreflectVarHandle(field);
+            if (!writable) field.setAccessible(true);
+            return new Accessor(field.getName(), field.getType(), handle, field, writable);
+        } catch (IllegalAccessException | RuntimeException ignored) {
+            try {
+                field.setAccessible(true);
+                return new Accessor(field.getName(), field.getType(), null, field, false);
+            } catch (RuntimeException exception) {
+                return null;
+            }
+        }
+    }
+
     @Override
     public JsonElement serialize(T src, Type typeOfSrc, JsonSerializationContext context) {
         JsonObject jsonObject = new JsonObject();
-        Class<?> clazz = src.getClass();
-        for (Field field : getAllFields(clazz)) {
+        for (Accessor accessor : metadata.get(src.getClass()).accessors()) {
             try {
-                field.setAccessible(true);
-                Object value = field.get(src);
-                jsonObject.add(field.getName(), context.serialize(value));
+                jsonObject.add(accessor.name(), context.serialize(accessor.get(src)));
             } catch (Exception e) {
                 Logger.error(e);
             }
@@ -32,37 +125,24 @@ public class DynamicObjectSerializer<T> implements JsonSerializer<T>, JsonDeseri
     public T deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) {
         JsonObject jsonObject = json.getAsJsonObject();
         Class<?> clazz = (Class<?>) typeOfT;
+        Metadata meta = metadata.get(clazz);
         T instance;
 
         try {
-            Constructor<? extends T> constructor = (Constructor<? extends T>) clazz.getDeclaredConstructor();
-            constructor.setAccessible(true);
-            instance = constructor.newInstance();
-
-            for (Field field : getAllFields(clazz)) {
-                if (jsonObject.has(field.getName())) {
-                    field.setAccessible(true);
-                    field.set(instance, context.deserialize(jsonObject.get(field.getName()), field.getType()));
+            if (meta.constructor() == null) throw new NoSuchMethodException(clazz.getName() + ".<init>()");
+            instance = (T) meta.constructor().invoke();
+
+            for (Accessor accessor : meta.accessors()) {
+                JsonElement value = jsonObject.get(accessor.name());
+                if (value != null) {
+                    accessor.set(instance, context.deserialize(value, accessor.type()));
                 }
             }
-        } catch (ReflectiveOperationException e) {
+        } catch (Throwable e) {
             Logger.error(e);
             return null;
         }
 
         return instance;
     }
-
-    private Field[] getAllFields(Class<?> clazz) {
-        Map<String, Field> fieldsMap = new HashMap<>();
-        while (clazz != null) {
-            for (Field field : clazz.getDeclaredFields()) {
-                if (!fieldsMap.containsKey(field.getName())) {
-                    fieldsMap.put(field.getName(), field);
-                }
-            }
-            clazz = clazz.getSuperclass();
-        }
-        return fieldsMap.values().toArray(new Field[0]);
-    }
 }
@@ -1,6 +1,7 @@
 package cz.coffee.skjson.api;
 
 import com.google.gson.*;
+import com.google.gson.stream.JsonWriter;
 import cz.coffee.skjson.utils.Logger;
 import org.bukkit.Bukkit;
 import org.yaml.snakeyaml.Yaml;
@@ -8,6 +9,7 @@ import org.yaml.snakeyaml.Yaml;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -93,6 +95,29 @@ public class FileHandler {
         return createOrWrite(filePath, content, true);
     }
 
+    /**
+     * Content written straight to the file, without building a json tree first.
+     */
+    @FunctionalInterface
+    public interface JsonContent {
+        void write(JsonWriter writer) throws IOException;
+    }
+
+    /**
+     * Rewrite the file with the content streamed by the given writer.
+     *
+     * @param filePath the file path
+     * @param content  the content
+     * @return Boolean
+     */
+    public static CompletableFuture<Boolean> write(String filePath, JsonContent content) {
+        if (filePath.startsWith("~")) {
+            //noinspection DataFlowIssue
+            filePath = Bukkit.getPluginManager().getPlugin("Skript").getDataFolder() + "/scripts" + "/" + filePath.substring(1);
+        }
+        return createOrWrite(filePath, content, true);
+    }
+
     public static CompletableFuture<Boolean> createOrWrite(String filePath, JsonElement content) {
         if (filePath.startsWith("~")) {
             //noinspection DataFlowIssue
@@ -110,9 +135,13 @@ public class FileHandler {
      * @return Boolean
      */
     public static CompletableFuture<Boolean> createOrWrite(final String filePath, JsonElement content, boolean writing) {
-        assert filePath != null;
         if (content == null) content = new JsonObject();
         final JsonElement json = content;
+        return createOrWrite(filePath, writer -> GSON.toJson(json, writer), writing);
+    }
+
+    private static CompletableFuture<Boolean> createOrWrite(final String filePath, final JsonContent content, boolean writing) {
+        assert filePath != null;
         return CompletableFuture.supplyAsync(() -> {
             try {
                 File file = new File(filePath);
@@ -124,7 +153,9 @@ public class FileHandler {
                     warn("Cannot create a file %s cause the file already exists.", filePath);
                     return false;
                 }
-                Files.writeString(file.toPath(), GSON.toJson(json));
+                try (JsonWriter writer = GSON.newJsonWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))) {
+                    content.write(writer);
+                }
                 return true;
             } catch (Exception ex) {
                 error(ex);
@@ -1,6 +1,8 @@
 package cz.coffee.skjson.api;
 
 import cz.coffee.skjson.SkJson;
+import cz.coffee.skjson.parser.ItemCache;
+import cz.coffee.skjson.parser.ParserUtil;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabExecutor;
@@ -62,6 +64,7 @@ public class SkJsonCommand implements TabExecutor {
             if (args.length == 0) {
                 info("&7Usage: &a/skjson reload");
                 info("&7Usage: &a/skjson about");
+                info("&7Usage: &a/skjson cache");
                 return true;
             }
             if (args[0].equalsIgnoreCase("reload")) {
@@ -77,7 +80,15 @@ public class SkJsonCommand implements TabExecutor {
                             Map.entry("WATCHER_PREFIX", ConfigRecords.WATCHER_PREFIX),
                             Map.entry("REQUESTS_PREFIX", ConfigRecords.REQUESTS_PREFIX),
                             Map.entry("WEBHOOK_PREFIX", ConfigRecords.WEBHOOK_PREFIX),
-                            Map.entry("PATH_VARIABLE_DELIMITER", ConfigRecords.PATH_VARIABLE_DELIMITER)
+                            Map.entry("PATH_VARIABLE_DELIMITER", ConfigRecords.PATH_VARIABLE_DELIMITER),
+                            Map.entry("FEATURE_STRUCTURAL_HASH", ConfigRecords.FEATURE_STRUCTURAL_HASH),
+                            Map.entry("PARALLEL_THRESHOLD", ConfigRecords.PARALLEL_THRESHOLD),
+                            Map.entry("FEATURE_ITEM_CACHE", ConfigRecords.FEATURE_ITEM_CACHE),
+                            Map.entry("ITEM_CACHE_SIZE", ConfigRecords.ITEM_CACHE_SIZE),
+                            Map.entry("NBT_ARRAY_THRESHOLD", ConfigRecords.NBT_ARRAY_THRESHOLD),
+                            Map.entry("LOOP_TICK_BUDGET", ConfigRecords.LOOP_TICK_BUDGET),
+                            Map.entry("SERIALIZER_INCLUDE", ConfigRecords.SERIALIZER_INCLUDE),
+                            Map.entry("SERIALIZER_EXCLUDE", ConfigRecords.SERIALIZER_EXCLUDE)
                     ));
                     Config.getConfig().loadConfigFile(false);
                     AtomicBoolean changed = new AtomicBoolean(false);
@@ -116,11 +127,20 @@ public class SkJsonCommand implements TabExecutor {
             } else if (args[0].equalsIgnoreCase("about") || args[0].equalsIgnoreCase("?")) {
                 sendAbout(sender);
                 return true;
+            } else if (args[0].equalsIgnoreCase("cache")) {
+                if (!ItemCache.enabled()) {
+                    sender.sendMessage(ColorWrapper.translate(PLUGIN_PREFIX + "&7Item cache is &cdisabled&7, enable it by &efeatures.item-cache&7 in the config."));
+                } else {
+                    sender.sendMessage(ColorWrapper.translate(PLUGIN_PREFIX + "&7Item cache: &f" + ItemCache.stats()));
+                }
+                sender.sendMessage(ColorWrapper.translate(PLUGIN_PREFIX + "&7Strings: &f" + ParserUtil.stringStats()));
+                return true;
             }
             return false;
         }
         sender.sendMessage(ColorWrapper.translate("&7Usage: &a/skjson reload"));
         sender.sendMessage(ColorWrapper.translate("&7Usage: &a/skjson about"));
+        sender.sendMessage(ColorWrapper.translate("&7Usage: &a/skjson cache"));
         return true;
     }
 
@@ -132,6 +152,7 @@ public class SkJsonCommand implements TabExecutor {
                 case 1 -> {
                     completations.add("reload");
                     completations.add("about");
+                    completations.add("cache");
                     completations.add("?");
                 }
             }
@@ -6,6 +6,7 @@ import ch.njol.skript.classes.ClassInfo;
 import ch.njol.skript.config.Node;
 import ch.njol.skript.config.Option;
 import ch.njol.skript.config.SectionNode;
+import ch.njol.skript.effects.Delay;
 import ch.njol.skript.lang.ExpressionInfo;
 import ch.njol.skript.lang.SkriptParser;
 import ch.njol.skript.lang.SyntaxElementInfo;
@@ -18,8 +19,12 @@ import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 @SuppressWarnings("all")
 public class SkriptReflection {
@@ -30,6 +35,9 @@ public class SkriptReflection {
     private static Field VARIABLES_MAP_HASHMAP;
     private static Field VARIABLES_MAP_TREEMAP;
     private static Constructor<?> VARIABLES_MAP;
+    private static Comparator<String> VARIABLE_NAME_COMPARATOR;
+    private static Field CASE_INSENSITIVE_VARIABLES;
+    private static Field DELAYED;
     private static Field PARSED_VALUE;
     private static Method PARSE_I;
     private static Field EXPRESSIONS;
@@ -90,10 +98,38 @@ public class SkriptReflection {
             } catch (NoSuchMethodException e) {
                 warning("Skript's variables map constructors could not be resolved.");
             }
+
+            for (String name : new String[]{"VARIABLE_NAME_COMPARATOR", "variableNameComparator"}) {
+                try {
+                    _FIELD = variablesMap.getDeclaredField(name);
+                    _FIELD.setAccessible(true);
+                    VARIABLE_NAME_COMPARATOR = (Comparator<String>) _FIELD.get(null);
+                    break;
+                } catch (NoSuchFieldException | IllegalAccessException ignored) {
+                }
+            }
+            if (VARIABLE_NAME_COMPARATOR == null)
+                warning("Skript's variable name comparator could not be resolved, lists are mapped one variable at a time.");
         } catch (ClassNotFoundException e) {
             warning("Skript's variables map class could not be resolved.");
         }
 
+        try {
+            _FIELD = Delay.class.getDeclaredField("DELAYED");
+            _FIELD.setAccessible(true);
+            DELAYED = _FIELD;
+        } catch (NoSuchFieldException e) {
+            warning("Skript's 'delayed' method could not be resolved. Some Skript warnings may not be available.");
+        }
+
+        try {
+            _FIELD = Variables.class.getDeclaredField("caseInsensitiveVariables");
+            _FIELD.setAccessible(true);
+            CASE_INSENSITIVE_VARIABLES = _FIELD;
+        } catch (NoSuchFieldException ignored) {
+            // older Skript, variable names are case sensitive
+        }
+
         try {
             _FIELD = ClassInfo.class.getDeclaredField("defaultExpression");
             _FIELD.setAccessible(true);
@@ -217,6 +253,84 @@ public class SkriptReflection {
         }
     }
 
+    /**
+     * Mark the {@link Event} as delayed, as {@link Delay} does, used by effects which continue the trigger later.
+     */
+    public static void delay(Event event) {
+        if (DELAYED == null)
+            return;
+
+        try {
+            ((Set<Event>) DELAYED.get(null)).add(event);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Whether the variables maps can be accessed directly, see {@link BulkVariableWriter}.
+     */
+    public static boolean canAccessVariablesMap() {
+        return LOCAL_VARIABLES != null && VARIABLES_MAP != null && VARIABLES_MAP_HASHMAP != null
+                && VARIABLES_MAP_TREEMAP != null && VARIABLE_NAME_COMPARATOR != null;
+    }
+
+    /**
+     * The comparator of Skript's variable tree (list indexes are compared as numbers).
+     */
+    public static Comparator<String> variableNameComparator() {
+        return VARIABLE_NAME_COMPARATOR;
+    }
+
+    /**
+     * Same as Skript does with the variable name before it's stored.
+     */
+    public static String normalizeVariableName(String name) {
+        if (CASE_INSENSITIVE_VARIABLES == null) return name;
+        try {
+            return CASE_INSENSITIVE_VARIABLES.getBoolean(null) ? name.toLowerCase(Locale.ENGLISH) : name;
+        } catch (IllegalAccessException e) {
+            return name;
+        }
+    }
+
+    /**
+     * The local variables of the {@link Event}, created when the event has none yet.
+     */
+    public static Object getOrCreateLocals(Event event) {
+        Object locals = getLocals(event);
+        if (locals != null) return locals;
+        try {
+            locals = VARIABLES_MAP.newInstance();
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw new RuntimeException(e);
+        }
+        putLocals(locals, event);
+        return locals;
+    }
+
+    /**
+     * The map of variable names to values of the VariablesMap.
+     */
+    public static Map<String, Object> variablesHashMap(Object variablesMap) {
+        try {
+            return (Map<String, Object>) VARIABLES_MAP_HASHMAP.get(variablesMap);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * The tree of list variables of the VariablesMap.
+     */
+    public static TreeMap<String, Object> variablesTreeMap(Object variablesMap) {
+        try {
+            return (TreeMap<String, Object>) VARIABLES_MAP_TREEMAP.get(variablesMap);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     /**
      * Retrieves the {@link Node}s of a {@link SectionNode}.
      *
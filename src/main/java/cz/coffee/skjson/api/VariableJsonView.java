@@ -0,0 +1,184 @@
+package cz.coffee.skjson.api;
+
+import ch.njol.skript.variables.Variables;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.internal.bind.TypeAdapters;
+import com.google.gson.stream.JsonWriter;
+import org.bukkit.event.Event;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static cz.coffee.skjson.parser.ParserUtil.GsonConverter;
+import static cz.coffee.skjson.parser.ParserUtil.defaultConverter;
+import static cz.coffee.skjson.parser.ParserUtil.parse;
+
+/**
+ * Read-only json view of a list variable.
+ * <p>
+ * The view is backed by the node of the list (the map Skript returns for {@code name::*}), its sub lists are nodes
+ * too and the value of a node is under the null key. Creating the view copies nothing: {@link #get(String)} converts
+ * only the requested child, {@link #write(JsonWriter)} streams the list without building a json tree and
+ * {@link #toJson()} builds the tree. The json is the one of {@code %objects%'s form}: a list with consecutive
+ * indexes as keys is an array, other lists are objects.
+ * <p>
+ * The view reads the live variables, so it has to be used before the variables are changed.
+ */
+@SuppressWarnings("unchecked")
+public final class VariableJsonView {
+
+    private static final long NOT_INDEX = Long.MIN_VALUE;
+
+    private final Map<String, Object> node;
+    private final boolean array;
+
+    private VariableJsonView(Map<String, Object> node) {
+        this.node = node;
+        this.array = isArray(node);
+    }
+
+    /**
+     * @param list  the name of the list, e.g. {@code data::*}
+     * @param event the event
+     * @param local whether the list is local
+     * @return the view or null when the list doesn't exist
+     */
+    public static @Nullable VariableJsonView of(@NotNull String list, @NotNull Event event, boolean local) {
+        Object node = Variables.getVariable(list, event, local);
+        return node instanceof Map<?, ?> map ? new VariableJsonView((Map<String, Object>) map) : null;
+    }
+
+    public boolean isArray() {
+        return array;
+    }
+
+    public int size() {
+        int size = 0;
+        for (String key : node.keySet()) {
+            if (isKey(key)) size++;
+        }
+        return size;
+    }
+
+    /**
+     * The json of one variable of the list.
+     *
+     * @param key the key of the variable, e.g. {@code 1} for the first value of an array
+     * @return the json or null when the list doesn't have the key
+     */
+    public @Nullable JsonElement get(@NotNull String key) {
+        if (!isKey(key)) return null;
+        Object value = node.get(SkriptReflection.normalizeVariableName(key));
+        return value == null ? null : element(value, array);
+    }
+
+    /**
+     * Stream the list to the writer.
+     */
+    public void write(@NotNull JsonWriter out) throws IOException {
+        write(out, node, array);
+    }
+
+    /**
+     * Build the json of the whole list.
+     */
+    public @NotNull JsonElement toJson() {
+        return convert(node, array);
+    }
+
+    private static boolean isKey(String key) {
+        return key != null && !key.equals("*");
+    }
+
+    private static boolean isArray(Map<String, Object> node) {
+        long previous = NOT_INDEX;
+        for (String key : node.keySet()) {
+            if (!isKey(key)) continue;
+            long index = index(key);
+            if (index == NOT_INDEX || (previous != NOT_INDEX && index != previous + 1)) return false;
+            previous = index;
+        }
+        return true;
+    }
+
+    /**
+     * The key as an index, or {@link #NOT_INDEX} when the key isn't an integer.
+     */
+    private static long index(String key) {
+        int length = key.length();
+        if (length == 0) return NOT_INDEX;
+        int i = key.charAt(0) == '-' ? 1 : 0;
+        if (length == i || length - i > 18) return NOT_INDEX;
+        long value = 0;
+        for (; i < length; i++) {
+            char c = key.charAt(i);
+            if (c < '0' || c > '9') return NOT_INDEX;
+            value = value * 10 + (c - '0');
+        }
+        return key.charAt(0) == '-' ? -value : value;
+    }
+
+    /**
+     * The node of a sub list, or null when the variable is a value (a node with its own value other than true
+     * is a value too).
+     */
+    private static Map<String, Object> list(Object value) {
+        if (!(value instanceof Map<?, ?> map)) return null;
+        Object nodeValue = map.get(null);
+        return nodeValue == null || nodeValue == Boolean.TRUE ? (Map<String, Object>) map : null;
+    }
+
+    private static JsonElement convert(Map<String, Object> node, boolean array) {
+        if (array) {
+            JsonArray structure = new JsonArray();
+            node.forEach((key, value) -> {
+                if (isKey(key)) structure.add(element(value, true));
+            });
+            return structure;
+        }
+        JsonObject structure = new JsonObject();
+        node.forEach((key, value) -> {
+            if (isKey(key)) structure.add(key, element(value, false));
+        });
+        return structure;
+    }
+
+    private static JsonElement element(Object value, boolean inArray) {
+        Map<String, Object> list = list(value);
+        if (list != null) return convert(list, isArray(list));
+        // jsons stored in variables mustn't be shared with the built json
+        return value(value, inArray, true);
+    }
+
+    private static void write(JsonWriter out, Map<String, Object> node, boolean array) throws IOException {
+        if (array) out.beginArray();
+        else out.beginObject();
+        for (Map.Entry<String, Object> entry : node.entrySet()) {
+            if (!isKey(entry.getKey())) continue;
+            if (!array) out.name(entry.getKey());
+            Map<String, Object> list = list(entry.getValue());
+            if (list != null) write(out, list, isArray(list));
+            else TypeAdapters.JSON_ELEMENT.write(out, value(entry.getValue(), array, false));
+        }
+        if (array) out.endArray();
+        else out.endObject();
+    }
+
+    private static JsonElement value(Object value, boolean inArray, boolean copy) {
+        if (value instanceof Map<?, ?> map) value = map.get(null);
+        if (value instanceof JsonPrimitive && inArray) return defaultConverter(value);
+        if (value instanceof JsonElement json) return copy ? json.deepCopy() : json;
+        if (!(value instanceof String || value instanceof Number || value instanceof Boolean || value instanceof List)) {
+            JsonElement parsed = parse(value);
+            return parsed == null ? JsonNull.INSTANCE : parsed;
+        }
+        return GsonConverter.toJsonTree(value);
+    }
+}
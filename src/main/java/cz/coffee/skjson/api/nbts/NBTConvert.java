@@ -3,32 +3,89 @@ package cz.coffee.skjson.api.nbts;
 import com.google.gson.*;
 import com.shanebeestudios.skbee.api.nbt.*;
 import com.shanebeestudios.skbee.api.nbt.iface.ReadWriteNBT;
+import cz.coffee.skjson.api.ConfigRecords;
 import cz.coffee.skjson.parser.ParserUtil;
 import cz.coffee.skjson.utils.Logger;
 import org.bukkit.inventory.ItemStack;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayDeque;
+import java.util.Base64;
 import java.util.Deque;
 import java.util.Objects;
 
+import static cz.coffee.skjson.api.ConfigRecords.NBT_ARRAY_THRESHOLD;
+
 public class NBTConvert {
 
-    public static JsonElement parse(String key, NBTCompound cmp) {
-        try {
-            NBTType type = cmp.getType(key);
+    /**
+     * Key of the type of a base64 block (byte, int or long), see {@link ConfigRecords#NBT_ARRAY_THRESHOLD}.
+     */
+    public static final String ARRAY_TYPE_KEY = "nbt-array";
+    public static final String ARRAY_DATA_KEY = "base64";
+
+    /**
+     * Compound whose tags are still to be read into the json object.
+     */
+    private record Frame(NBTCompound source, JsonObject target) {
+    }
 
-            if (type.equals(NBTType.NBTTagList)) {
-                return parseList(key, cmp);
-            } else {
-                return parseNonList(key, cmp);
+    /**
+     * Read the tag to json. Compounds are walked by a queue of frames, not by recursion, so deep tags don't
+     * grow the stack.
+     *
+     * @param key the key of the tag
+     * @param cmp the compound of the tag
+     * @return the json
+     */
+    public static JsonElement parse(String key, NBTCompound cmp) {
+        Deque<Frame> frames = new ArrayDeque<>();
+        JsonElement root = read(key, cmp, frames);
+        while (!frames.isEmpty()) {
+            Frame frame = frames.pop();
+            for (String child : frame.source().getKeys()) {
+                frame.target().add(child, read(child, frame.source(), frames));
             }
+        }
+        return root;
+    }
+
+    /**
+     * Value of the tag, a compound is returned empty and its frame is queued.
+     */
+    private static JsonElement read(String key, NBTCompound cmp, Deque<Frame> frames) {
+        try {
+            return switch (cmp.getType(key)) {
+                case NBTTagByte -> {
+                    byte value = cmp.getByte(key);
+                    yield value == 1 || value == 0 ? new JsonPrimitive(value == 1) : new JsonPrimitive(value);
+                }
+                case NBTTagShort -> new JsonPrimitive(cmp.getShort(key));
+                case NBTTagInt -> new JsonPrimitive(cmp.getInteger(key));
+                case NBTTagLong -> new JsonPrimitive(cmp.getLong(key));
+                case NBTTagFloat -> new JsonPrimitive(cmp.getFloat(key).doubleValue());
+                case NBTTagDouble -> new JsonPrimitive(cmp.getDouble(key));
+                case NBTTagString -> new JsonPrimitive(cmp.getString(key));
+                case NBTTagCompound -> queue(Objects.requireNonNull(cmp.getCompound(key)), frames);
+                case NBTTagList -> readList(key, cmp, frames);
+                case NBTTagByteArray -> parseByteArray(Objects.requireNonNull(cmp.getByteArray(key)));
+                case NBTTagIntArray -> parseIntArray(Objects.requireNonNull(cmp.getIntArray(key)));
+                case NBTTagLongArray -> parseLongArray(Objects.requireNonNull(cmp.getLongArray(key)));
+                default -> JsonNull.INSTANCE;
+            };
         } catch (Exception ex) {
             Logger.error(ex);
             return JsonNull.INSTANCE;
         }
     }
 
-    private static JsonElement parseList(String key, NBTCompound cmp) {
+    private static JsonObject queue(NBTCompound compound, Deque<Frame> frames) {
+        JsonObject object = new JsonObject();
+        frames.push(new Frame(compound, object));
+        return object;
+    }
+
+    private static JsonElement readList(String key, NBTCompound cmp, Deque<Frame> frames) {
         NBTCustom type0 = NBTCustom.parseList(cmp, key);
         final JsonArray array = new JsonArray();
 
@@ -38,12 +95,7 @@ public class NBTConvert {
                 break;
             case NBTTagCompoundList:
                 for (ReadWriteNBT readWriteNBT : cmp.getCompoundList(key)) {
-                    JsonObject obj = new JsonObject();
-                    for (String readWriteNBTKey : readWriteNBT.getKeys()) {
-                        JsonElement value = parse(readWriteNBTKey, (NBTCompound) readWriteNBT);
-                        obj.add(readWriteNBTKey, value);
-                    }
-                    array.add(obj);
+                    array.add(queue((NBTCompound) readWriteNBT, frames));
                 }
                 break;
             case NBTTagDoubleList:
@@ -64,52 +116,78 @@ public class NBTConvert {
         return array;
     }
 
-    private static JsonElement parseNonList(String key, NBTCompound cmp) {
-        NBTCustom type0 = NBTCustom.valueOf(cmp.getType(key).toString());
+    private static boolean compact(int length) {
+        return NBT_ARRAY_THRESHOLD > 0 && length >= NBT_ARRAY_THRESHOLD;
+    }
 
-        return switch (type0) {
-            case NBTTagByte -> {
-                Byte value = cmp.getByte(key);
-                yield value == 1 || value == 0 ? new JsonPrimitive(value == 1) : ParserUtil.parse(value);
-            }
-            case NBTTagShort -> ParserUtil.parse(cmp.getShort(key));
-            case NBTTagInt -> ParserUtil.parse(cmp.getInteger(key));
-            case NBTTagLong -> ParserUtil.parse(cmp.getLong(key));
-            case NBTTagFloat -> ParserUtil.parse(cmp.getFloat(key));
-            case NBTTagDouble -> ParserUtil.parse(cmp.getDouble(key));
-            case NBTTagCompound -> parseCompound(Objects.requireNonNull(cmp.getCompound(key)));
-            case NBTTagString -> new Gson().toJsonTree(cmp.getString(key));
-            case NBTTagByteArray -> parseByteArray(Objects.requireNonNull(cmp.getByteArray(key)));
-            case NBTTagIntArray -> parseIntArray(Objects.requireNonNull(cmp.getIntArray(key)));
-            default -> JsonNull.INSTANCE;
-        };
-    }
-
-    private static JsonObject parseCompound(NBTCompound compound) {
-        JsonObject object = new JsonObject();
-        for (String key : compound.getKeys()) {
-            JsonElement value = parse(key, compound);
-            object.add(key, value);
-        }
-        return object;
+    private static JsonObject block(String type, byte[] data) {
+        JsonObject block = new JsonObject();
+        block.addProperty(ARRAY_TYPE_KEY, type);
+        block.addProperty(ARRAY_DATA_KEY, Base64.getEncoder().encodeToString(data));
+        return block;
     }
 
-    private static JsonArray parseByteArray(byte[] array) {
-        JsonArray jsonArray = new JsonArray();
+    private static JsonElement parseByteArray(byte[] array) {
+        if (compact(array.length)) return block("byte", array);
+        JsonArray jsonArray = new JsonArray(array.length);
         for (byte b : array) {
             jsonArray.add(b);
         }
         return jsonArray;
     }
 
-    private static JsonArray parseIntArray(int[] array) {
-        JsonArray jsonArray = new JsonArray();
+    private static JsonElement parseIntArray(int[] array) {
+        if (compact(array.length)) {
+            ByteBuffer buffer = ByteBuffer.allocate(array.length * Integer.BYTES);
+            buffer.asIntBuffer().put(array);
+            return block("int", buffer.array());
+        }
+        JsonArray jsonArray = new JsonArray(array.length);
         for (int i : array) {
             jsonArray.add(i);
         }
         return jsonArray;
     }
 
+    private static JsonElement parseLongArray(long[] array) {
+        if (compact(array.length)) {
+            ByteBuffer buffer = ByteBuffer.allocate(array.length * Long.BYTES);
+            buffer.asLongBuffer().put(array);
+            return block("long", buffer.array());
+        }
+        JsonArray jsonArray = new JsonArray(array.length);
+        for (long l : array) {
+            jsonArray.add(l);
+        }
+        return jsonArray;
+    }
+
+    static boolean isBlock(JsonElement element) {
+        return element instanceof JsonObject object && object.size() == 2
+                && object.get(ARRAY_TYPE_KEY) instanceof JsonPrimitive && object.get(ARRAY_DATA_KEY) instanceof JsonPrimitive;
+    }
+
+    /**
+     * Write the base64 block back as the typed array it was read from.
+     */
+    static void setBlock(String key, JsonObject block, NBTCompound cont) {
+        byte[] data = Base64.getDecoder().decode(block.get(ARRAY_DATA_KEY).getAsString());
+        switch (block.get(ARRAY_TYPE_KEY).getAsString()) {
+            case "byte" -> cont.setByteArray(key, data);
+            case "int" -> {
+                int[] array = new int[data.length / Integer.BYTES];
+                ByteBuffer.wrap(data).asIntBuffer().get(array);
+                cont.setIntArray(key, array);
+            }
+            case "long" -> {
+                long[] array = new long[data.length / Long.BYTES];
+                ByteBuffer.wrap(data).asLongBuffer().get(array);
+                cont.setLongArray(key, array);
+            }
+            default -> Logger.warn("Unknown nbt array type of '%s': %s", key, block.get(ARRAY_TYPE_KEY));
+        }
+    }
+
     static void setValue(String key, JsonElement value, NBTCompound cont) {
         Object data = ParserUtil.jsonToType(value);
 
@@ -196,8 +274,10 @@ public class NBTConvert {
             JsonElement unparsed = object.get(key);
             if (unparsed.isJsonPrimitive()) {
                 setValue(key, unparsed, main.getCompound(mainKey));
+            } else if (isBlock(unparsed)) {
+                setBlock(key, unparsed.getAsJsonObject(), Objects.requireNonNull(main.getCompound(mainKey)));
             } else if (unparsed.isJsonObject()) {
-                processObject(Objects.requireNonNull(main.getCompound(mainKey)).getCompound(key), unparsed.getAsJsonObject(), key);
+                processObject(main.getCompound(mainKey), unparsed.getAsJsonObject(), key);
             } else if (unparsed.isJsonArray()) {
                 processList(main.getCompound(mainKey), unparsed.getAsJsonArray(), key);
             }
@@ -226,6 +306,8 @@ public class NBTConvert {
             JsonElement value = entry.getValue();
             if (value.isJsonPrimitive()) {
                 setValue(key, value, container);
+            } else if (isBlock(value)) {
+                setBlock(key, value.getAsJsonObject(), container);
             } else if (value.isJsonObject()) {
                 processObject(container, value.getAsJsonObject(), key);
             } else if (value.isJsonArray()) {
@@ -0,0 +1,125 @@
+package cz.coffee.skjson.json;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Breadth-first search for keys and values anywhere in a json.
+ * <p>
+ * The search returns on the first hit, only containers are queued, primitives are compared only with
+ * primitives of the same kind and containers only with containers of the same type and size
+ * before any deep comparison happens. A max depth can limit the search, depth 1 are the direct children
+ * of the root, {@code 0} or less means unlimited. Big jsons are searched by {@link ParallelWalk}.
+ * Values of the lists with a {@link ListIndex} are looked up in the index wherever the lists are found.
+ */
+public abstract class DeepSearch {
+
+    public static boolean hasKey(final JsonElement root, final String key) {
+        return hasKey(root, key, 0);
+    }
+
+    public static boolean hasKey(final JsonElement root, final String key, final int maxDepth) {
+        if (root == null || key == null) return false;
+        if (ParallelWalk.isLarge(root)) return ParallelWalk.hasKey(root, key, maxDepth);
+        ArrayDeque<JsonElement> queue = new ArrayDeque<>();
+        queue.offerLast(root);
+        int depth = 0;
+        while (!queue.isEmpty()) {
+            if (maxDepth > 0 && ++depth > maxDepth) return false;
+            for (int level = queue.size(); level > 0; level--) {
+                JsonElement current = queue.pollFirst();
+                if (current instanceof JsonObject object) {
+                    if (object.has(key)) return true;
+                    for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+                        enqueue(queue, entry.getValue());
+                    }
+                } else if (current instanceof JsonArray array) {
+                    for (int i = 0; i < array.size(); i++) {
+                        enqueue(queue, array.get(i));
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    public static boolean hasValue(final JsonElement root, final JsonElement value) {
+        return hasValue(root, value, 0);
+    }
+
+    public static boolean hasValue(final JsonElement root, final JsonElement value, final int maxDepth) {
+        if (root == null || value == null) return false;
+        if (ParallelWalk.isLarge(root)) return ParallelWalk.hasValue(root, value, maxDepth);
+        Predicate<JsonElement> equalToValue = StructuralHash.equalTo(value);
+        ArrayDeque<JsonElement> queue = new ArrayDeque<>();
+        queue.offerLast(root);
+        int depth = 0;
+        while (!queue.isEmpty()) {
+            if (maxDepth > 0 && ++depth > maxDepth) return false;
+            for (int level = queue.size(); level > 0; level--) {
+                JsonElement current = queue.pollFirst();
+                if (current instanceof JsonObject object) {
+                    for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+                        JsonElement candidate = entry.getValue();
+                        if (equalToValue.test(candidate)) return true;
+                        enqueue(queue, candidate);
+                    }
+                } else if (current instanceof JsonArray array) {
+                    Boolean indexed = ListIndex.contains(array, value);
+                    if (indexed != null) {
+                        if (indexed) return true;
+                        continue;
+                    }
+                    for (int i = 0; i < array.size(); i++) {
+                        JsonElement candidate = array.get(i);
+                        if (equalToValue.test(candidate)) return true;
+                        enqueue(queue, candidate);
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void enqueue(ArrayDeque<JsonElement> queue, JsonElement element) {
+        if (element instanceof JsonObject object) {
+            if (object.size() > 0) queue.offerLast(element);
+        } else if (element instanceof JsonArray array) {
+            if (!array.isEmpty()) queue.offerLast(element);
+        }
+    }
+
+    /**
+     * Same result as {@link JsonElement#equals(Object)}, but cheap checks (type, kind of primitive, size)
+     * are done before the deep comparison.
+     */
+    public static boolean matches(final JsonElement a, final JsonElement b) {
+        if (a == b) return true;
+        if (a == null || b == null) return false;
+        if (a instanceof JsonPrimitive pa) {
+            if (!(b instanceof JsonPrimitive pb)) return false;
+            if (pa.isNumber() != pb.isNumber() || pa.isString() != pb.isString() || pa.isBoolean() != pb.isBoolean())
+                return false;
+            return pa.equals(pb);
+        } else if (a instanceof JsonObject oa) {
+            if (!(b instanceof JsonObject ob) || oa.size() != ob.size()) return false;
+            for (Map.Entry<String, JsonElement> entry : oa.entrySet()) {
+                if (!matches(entry.getValue(), ob.get(entry.getKey()))) return false;
+            }
+            return true;
+        } else if (a instanceof JsonArray aa) {
+            if (!(b instanceof JsonArray ab) || aa.size() != ab.size()) return false;
+            for (int i = 0; i < aa.size(); i++) {
+                if (!matches(aa.get(i), ab.get(i))) return false;
+            }
+            return true;
+        }
+        return a.isJsonNull() && b.isJsonNull();
+    }
+}
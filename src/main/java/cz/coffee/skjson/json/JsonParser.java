@@ -29,6 +29,10 @@ public class JsonParser {
         return new Counter(json);
     }
 
+    public static JsonPatcher patch(final JsonElement json) {
+        return new JsonPatcher(json);
+    }
+
     public static boolean isExpression(final JsonElement json) {
         AtomicBoolean r = new AtomicBoolean(true);
         if (json.isJsonObject()) {
@@ -3,59 +3,32 @@ package cz.coffee.skjson.json;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import cz.coffee.skjson.utils.CompiledPath;
 import cz.coffee.skjson.utils.JsonParserI;
-import cz.coffee.skjson.utils.Logger;
-import cz.coffee.skjson.utils.PatternUtil;
-import cz.coffee.skjson.utils.Util;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.function.Predicate;
 
 import static cz.coffee.skjson.json.JsonParser.isNull;
 import static cz.coffee.skjson.parser.ParserUtil.parse;
 import static cz.coffee.skjson.utils.Logger.error;
-import static cz.coffee.skjson.utils.Util.parseNumber;
 
 public class JsonParserRecords {
 
-    static Deque<JsonElement> subDequeJsons(final JsonElement json, List<PatternUtil.keyStruct> keys) {
-        Deque<JsonElement> currents = new ConcurrentLinkedDeque<>();
-        try {
-            isNull(json);
-            currents.offerLast(json);
-            for (PatternUtil.keyStruct struct : keys.subList(0, keys.size() - 1)) {
-                JsonElement current = currents.pollLast();
-                if (current == null || current.isJsonNull()) {
-                    return currents;
-                }
-                if (current.isJsonObject()) {
-                    currents.offerLast(current.getAsJsonObject().get(struct.key()));
-                } else if (current.isJsonArray()) {
-                    currents.offerLast(current.getAsJsonArray().get(Integer.parseInt(struct.key())));
-                }
-            }
-            return currents;
-        } catch (Exception ex) {
-            error(ex);
-        }
-        return null;
-    }
-
-    static void getCurrent(JsonElement value, Deque<JsonElement> currentElements) {
-        JsonElement current;
-        current = currentElements.pollLast();
+    static void removeAllValues(JsonElement value, JsonElement current) {
         if (current == null || current.isJsonNull()) return;
+        Predicate<JsonElement> equalToValue = StructuralHash.equalTo(value);
 
         if (current.isJsonObject()) {
             JsonObject jsonObject = current.getAsJsonObject();
             Set<Map.Entry<String, JsonElement>> entries = jsonObject.entrySet();
-            entries.removeIf(entry -> entry.getValue().equals(value));
+            entries.removeIf(entry -> equalToValue.test(entry.getValue()));
         } else if (current.isJsonArray()) {
             JsonArray jsonArray = current.getAsJsonArray();
             for (int i = jsonArray.size() - 1; i >= 0; i--) {
-                JsonElement element = jsonArray.get(i);
-                if (element.equals(value)) {
+                if (equalToValue.test(jsonArray.get(i))) {
                     jsonArray.remove(i);
                 }
             }
@@ -74,44 +47,24 @@ public class JsonParserRecords {
         }
 
         @Override
-        public JsonElement key(Queue<PatternUtil.keyStruct> keys) {
-            Deque<JsonElement> currents = new ConcurrentLinkedDeque<>();
-            currents.offerLast(this.json);
-            for (PatternUtil.keyStruct struct : keys) {
-                JsonElement current = currents.pollLast();
-                if (current == null || current.isJsonNull()) return null;
-
-                if (current instanceof JsonObject jsonobject) {
-                    current = jsonobject.get(struct.key());
-                } else if (current instanceof JsonArray jsonarray) {
-                    current = jsonarray.get(parseNumber(struct.key()));
-                }
-                if (current != null) currents.offerLast(current);
-            }
-            return currents.pollLast();
+        public JsonElement key(CompiledPath path) {
+            if (json == null) return null;
+            return PathWalker.resolve(this.json, path);
         }
 
         @Override
-        public Integer indexOfListValue(LinkedList<PatternUtil.keyStruct> keys, JsonElement value) {
-            Deque<JsonElement> currents = new ConcurrentLinkedDeque<>();
-            JsonElement current = null;
-            currents.offerLast(this.json);
-            
-            for (PatternUtil.keyStruct struct : keys) {
-                current = currents.pollLast();
-                if (current == null || current.isJsonNull()) return null;
-
-                if (current instanceof JsonObject jsonobject) {
-                    current = jsonobject.get(struct.key());
-                } else if (current instanceof JsonArray jsonarray) {
-                    current = jsonarray.get(parseNumber(struct.key()));
-                }
-                if (current != null) currents.offerLast(current);
-            }
+        public Integer indexOfListValue(CompiledPath path, JsonElement value) {
+            if (json == null) return null;
+            JsonElement current = PathWalker.resolve(this.json, path);
 
             if (current instanceof JsonArray array) {
+                if (ListIndex.isIndexed(array)) {
+                    int index = ListIndex.indexOf(array, value);
+                    return index == -1 ? null : index;
+                }
+                Predicate<JsonElement> equalToValue = StructuralHash.equalTo(value);
                 for (var i = 0; i < array.size(); i++) {
-                    if (array.get(i).equals(value)) {
+                    if (equalToValue.test(array.get(i))) {
                         return i;
                     }
                 }
@@ -131,67 +84,58 @@ public class JsonParserRecords {
         }
 
         @Override
-        public void byValue(LinkedList<PatternUtil.keyStruct> keys, JsonElement value) {
-            Deque<JsonElement> currents = new ConcurrentLinkedDeque<>();
-            JsonElement current;
-            currents.offerLast(this.json);
-
-            for (PatternUtil.keyStruct struct : keys) {
-                current = currents.pollLast();
-                if (current == null || current.isJsonNull()) return;
-                if (current instanceof JsonObject jsonobject) {
-                    currents.offerLast(jsonobject.get(struct.key()));
-                } else if (current instanceof JsonArray jsonarray) {
-                    currents.offerLast(jsonarray.get(parseNumber(struct.key())));
-                }
-            }
-
-            current = currents.pollLast();
+        public void byValue(CompiledPath path, JsonElement value) {
+            if (json == null) return;
+            JsonElement current = PathWalker.resolve(this.json, path);
             if (current == null || current.isJsonNull()) return;
+            Predicate<JsonElement> equalToValue = StructuralHash.equalTo(value);
             if (current instanceof JsonObject jsonobject) {
                 String found = null;
                 for (Map.Entry<String, JsonElement> entry : jsonobject.entrySet()) {
-                    if (entry.getValue().equals(value)) {
+                    if (equalToValue.test(entry.getValue())) {
                         found = entry.getKey();
                         break;
                     }
                 }
-                jsonobject.remove(found);
+                if (found != null) jsonobject.remove(found);
             } else if (current instanceof JsonArray jsonarray) {
-                jsonarray.remove(value);
+                if (ListIndex.isIndexed(jsonarray)) {
+                    int index = ListIndex.indexOf(jsonarray, value);
+                    if (index != -1) ListIndex.removed(jsonarray, index, jsonarray.remove(index));
+                } else {
+                    for (int i = 0; i < jsonarray.size(); i++) {
+                        if (equalToValue.test(jsonarray.get(i))) {
+                            jsonarray.remove(i);
+                            break;
+                        }
+                    }
+                }
             }
         }
 
         @Override
-        public void byIndex(LinkedList<PatternUtil.keyStruct> keys) {
-            Deque<JsonElement> currents = subDequeJsons(this.json, keys);
-            assert currents != null;
-            JsonElement current = currents.pollLast();
-            if (current == null || current.isJsonNull()) return;
-
+        public void byIndex(CompiledPath path) {
+            if (json == null) return;
+            JsonElement current = PathWalker.parent(this.json, path);
             if (current instanceof JsonArray jsonarray) {
-                int index = parseNumber(keys.get(keys.size() - 1).key());
-                if (index < 0 || index >= jsonarray.size()) return;
-                jsonarray.remove(index);
+                int index = PathWalker.indexIn(jsonarray, path, path.size() - 1);
+                if (index != -1) ListIndex.removed(jsonarray, index, jsonarray.remove(index));
             }
-
         }
 
         @Override
-        public void byKey(LinkedList<PatternUtil.keyStruct> keys) {
-            Deque<JsonElement> currents = subDequeJsons(this.json, keys);
-            assert currents != null;
-            String lastKey = keys.getLast().key();
-            JsonElement current = currents.pollLast();
-
+        public void byKey(CompiledPath path) {
+            if (json == null) return;
+            JsonElement current = PathWalker.parent(this.json, path);
             if (current == null || current.isJsonNull()) return;
+            String lastKey = path.lastKey();
 
             if (current instanceof JsonObject jsonobject) {
                 jsonobject.remove(lastKey);
             } else if (current instanceof JsonArray jsonarray) {
-                for (JsonElement e : jsonarray) {
-                    if (e instanceof JsonObject eo && eo.has(lastKey)) {
-                        jsonarray.remove(e);
+                for (int i = 0; i < jsonarray.size(); i++) {
+                    if (jsonarray.get(i) instanceof JsonObject eo && eo.has(lastKey)) {
+                        ListIndex.removed(jsonarray, i, jsonarray.remove(i));
                         break;
                     }
                 }
@@ -199,31 +143,12 @@ public class JsonParserRecords {
         }
 
         @Override
-        public void allByValue(LinkedList<PatternUtil.keyStruct> keys, JsonElement value) {
-            Deque<JsonElement> currents = new ConcurrentLinkedDeque<>();
-            JsonElement current;
-            currents.offerLast(this.json);
-
-            if (keys == null || keys.isEmpty()) {
-                getCurrent(value, currents);
-                return;
-            }
-
-            while (!keys.isEmpty()) {
-                current = currents.pollLast();
-                if (current == null || current.isJsonNull()) return;
-
-                if (current.isJsonObject()) {
-                    JsonObject jsonObject = current.getAsJsonObject();
-                    String key = Objects.requireNonNull(keys.pollFirst()).key();
-                    currents.offerLast(jsonObject.get(key));
-                } else if (current.isJsonArray()) {
-                    JsonArray jsonArray = current.getAsJsonArray();
-                    int index = Integer.parseInt(Objects.requireNonNull(keys.pollFirst()).key());
-                    currents.offerLast(jsonArray.get(index));
-                }
-            }
-            getCurrent(value, currents);
+        public void allByValue(CompiledPath path, JsonElement value) {
+            if (json == null) return;
+            if (path == null) path = CompiledPath.EMPTY;
+            JsonElement current = PathWalker.resolve(this.json, path);
+            removeAllValues(value, current);
+            ListIndex.invalidate(current);
         }
     }
 
@@ -238,21 +163,21 @@ public class JsonParserRecords {
         }
 
         @Override
-        public void key(LinkedList<PatternUtil.keyStruct> keys, String key) {
-            Deque<JsonElement> currents = subDequeJsons(this.json, keys);
-            assert currents != null;
-            String lastKey = keys.getLast().key();
+        public void key(CompiledPath path, String key) {
+            if (json == null || path.isEmpty()) return;
+            String lastKey = path.lastKey();
 
-            JsonElement current = currents.pollLast();
+            JsonElement current = PathWalker.parent(this.json, path);
             if (current == null || current.isJsonNull()) current = this.json;
+            ListIndex.invalidate(current);
 
             if (current instanceof JsonObject jsonobject) {
                 JsonElement value = jsonobject.remove(lastKey);
                 if (value != null) jsonobject.add(key, value);
             } else if (current instanceof JsonArray jsonarray) {
                 try {
-                    int index = Integer.parseInt(lastKey);
-                    if (index >= 0 && index < jsonarray.size()) {
+                    int index = PathWalker.indexIn(jsonarray, path, path.size() - 1);
+                    if (index != -1) {
                         jsonarray.remove(index);
                         jsonarray.set(index, parse(key));
                     }
@@ -263,59 +188,45 @@ public class JsonParserRecords {
         }
 
         @Override
-        public void value(LinkedList<PatternUtil.keyStruct> keys, JsonElement value) {
-            Deque<JsonElement> currents = new ConcurrentLinkedDeque<>();
-            currents.offerLast(this.json);
-            JsonElement current;
-            if (keys.isEmpty()) return;
-            PatternUtil.keyStruct lastKey = keys.removeLast();
-            while ((current = currents.pollLast()) != null) {
-                for (PatternUtil.keyStruct struct : keys) {
-                    //Logger.info("&a[value] &7: %s  -> &a %s", current, struct);
-                    if (struct.key().isEmpty() || struct.key().isBlank()) continue;
-                    try {
-                        if (current instanceof JsonObject jsonobject) {
-                            if (!jsonobject.has(struct.key())) {
-                                if (struct.isList()) {
-                                    jsonobject.add(struct.key(), new JsonArray());
-                                } else {
-                                    jsonobject.add(struct.key(), new JsonObject());
-                                }
-                            }
-                            current = jsonobject.get(struct.key());
-                        } else if (current instanceof JsonArray jsonArray) {
-                            int index = Util.isNumber(struct.key()) ? parseNumber(struct.key()) : -1;
-                            if (index >= jsonArray.size()) {
-                                if (struct.isList()) {
-                                    jsonArray.add(new JsonArray());
-                                } else {
-                                    jsonArray.add(new JsonObject());
-                                }
-                            }
-                            current = jsonArray.get(index);
-                        }
-                    } catch (Exception ex) {
-                        error(ex);
-                    }
-                }
+        public void value(CompiledPath path, JsonElement value) {
+            if (json == null || path.isEmpty()) return;
+            final int last = path.size() - 1;
+            JsonElement current = this.json;
+            for (int i = 0; i < last; i++) {
+                String key = path.key(i);
+                if (key.isBlank()) continue;
                 if (current instanceof JsonObject jsonobject) {
-                    String last = lastKey == null ? String.valueOf(jsonobject.size()) : lastKey.key();
-                    jsonobject.add(last, value);
-                } else if (current instanceof JsonArray jsonarray) {
-                    int index = -1;
-                    for (int i = 0; i < jsonarray.size(); i++) {
-                        assert lastKey != null;
-                        if (i == parseNumber(lastKey.key())) {
-                            index = i;
-                            break;
-                        }
+                    JsonElement next = jsonobject.get(key);
+                    if (next == null) {
+                        next = path.isList(i) ? new JsonArray() : new JsonObject();
+                        jsonobject.add(key, next);
                     }
-                    if (index != -1) {
-                        jsonarray.set(index, value);
+                    current = next;
+                } else if (current instanceof JsonArray jsonArray) {
+                    int index = path.index(i);
+                    if (index == CompiledPath.NOT_AN_INDEX || index < 0) return;
+                    if (index >= jsonArray.size()) {
+                        JsonElement next = path.isList(i) ? new JsonArray() : new JsonObject();
+                        jsonArray.add(next);
+                        ListIndex.added(jsonArray, next);
+                        current = next;
                     } else {
-                        jsonarray.remove(value);
-                        jsonarray.add(value);
+                        current = jsonArray.get(index);
                     }
+                } else {
+                    return;
+                }
+            }
+            if (current instanceof JsonObject jsonobject) {
+                jsonobject.add(path.key(last), value);
+            } else if (current instanceof JsonArray jsonarray) {
+                int index = PathWalker.indexIn(jsonarray, path, last);
+                if (index != -1) {
+                    ListIndex.replaced(jsonarray, index, jsonarray.set(index, value), value);
+                } else {
+                    if (jsonarray.remove(value)) ListIndex.invalidate(jsonarray);
+                    jsonarray.add(value);
+                    ListIndex.added(jsonarray, value);
                 }
             }
         }
@@ -333,6 +244,7 @@ public class JsonParserRecords {
 
         @Override
         public int keys(@NonNull String key) {
+            if (ParallelWalk.isLarge(this.json)) return ParallelWalk.countKeys(this.json, key);
             int count = 0;
             JsonElement value;
             Deque<JsonElement> elements = new ConcurrentLinkedDeque<>();
@@ -353,7 +265,9 @@ public class JsonParserRecords {
 
         @Override
         public int values(@NonNull JsonElement value) {
+            if (ParallelWalk.isLarge(this.json)) return ParallelWalk.countValues(this.json, value);
             int count = 0;
+            Predicate<JsonElement> equalToValue = StructuralHash.equalTo(value);
             JsonElement jsonElement;
             Deque<JsonElement> elements = new ConcurrentLinkedDeque<>();
             elements.add(this.json);
@@ -363,7 +277,7 @@ public class JsonParserRecords {
                     for (JsonElement l : jsonElement.getAsJsonArray()) elements.offerLast(l);
                 } else if (jsonElement instanceof JsonObject) {
                     for (Map.Entry<String, JsonElement> entry : jsonElement.getAsJsonObject().entrySet()) {
-                        if (entry.getValue().equals(value)) count++;
+                        if (equalToValue.test(entry.getValue())) count++;
                         if (!entry.getValue().isJsonPrimitive()) elements.offerLast(entry.getValue());
                     }
                 }
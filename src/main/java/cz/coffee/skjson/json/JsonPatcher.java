@@ -0,0 +1,308 @@
+package cz.coffee.skjson.json;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import cz.coffee.skjson.utils.CompiledPath;
+import cz.coffee.skjson.utils.LruCache;
+import cz.coffee.skjson.utils.PatternUtil;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static cz.coffee.skjson.api.ConfigRecords.PATH_VARIABLE_DELIMITER;
+import static cz.coffee.skjson.json.JsonParser.isNull;
+import static cz.coffee.skjson.utils.Util.fstring;
+
+/**
+ * Batch of JSON Patch (RFC 6902) operations applied to one json.
+ * <p>
+ * Paths are JSON Pointers ({@code /stats/kills}, {@code /list/-}); a path which doesn't start with {@code /}
+ * is read as a regular skJson path ({@code stats::kills}). The containers resolved by an operation are
+ * remembered by their pointer prefix, so operations touching the same sub-object don't walk from the root
+ * again. The memo is invalidated whenever an operation changes the structure under a prefix.
+ * <p>
+ * Operations are applied in order, the first failing operation stops the patch.
+ */
+public final class JsonPatcher {
+
+    public enum Op {ADD, REMOVE, REPLACE, MOVE, COPY, TEST}
+
+    public record Operation(Op op, String path, String from, JsonElement value) {
+    }
+
+    private record Pointer(String[] tokens, String[] prefixes) {
+        int size() {
+            return tokens.length;
+        }
+
+        String last() {
+            return tokens[tokens.length - 1];
+        }
+    }
+
+    /**
+     * Key of a cached pointer, skJson paths are split by the delimiter, so it's part of their key (null for json pointers).
+     */
+    private record PointerKey(String path, String delimiter) {
+    }
+
+    private static final LruCache<PointerKey, Pointer> pointers = new LruCache<>(512);
+
+    private final JsonElement json;
+    private final List<Operation> operations = new ArrayList<>();
+    private final Map<String, JsonElement> containers = new HashMap<>();
+
+    JsonPatcher(final JsonElement json) {
+        this.json = json;
+    }
+
+    public JsonPatcher add(String path, JsonElement value) {
+        operations.add(new Operation(Op.ADD, path, null, value));
+        return this;
+    }
+
+    public JsonPatcher remove(String path) {
+        operations.add(new Operation(Op.REMOVE, path, null, null));
+        return this;
+    }
+
+    public JsonPatcher replace(String path, JsonElement value) {
+        operations.add(new Operation(Op.REPLACE, path, null, value));
+        return this;
+    }
+
+    public JsonPatcher move(String from, String path) {
+        operations.add(new Operation(Op.MOVE, path, from, null));
+        return this;
+    }
+
+    public JsonPatcher copy(String from, String path) {
+        operations.add(new Operation(Op.COPY, path, from, null));
+        return this;
+    }
+
+    public JsonPatcher test(String path, JsonElement value) {
+        operations.add(new Operation(Op.TEST, path, null, value));
+        return this;
+    }
+
+    public JsonPatcher operation(Operation operation) {
+        operations.add(operation);
+        return this;
+    }
+
+    /**
+     * Apply all queued operations.
+     *
+     * @throws JsonParserException when an operation fails, the operations before it stay applied
+     */
+    public void apply() throws JsonParserException {
+        isNull(json);
+        try {
+            for (int i = 0; i < operations.size(); i++) {
+                Operation operation = operations.get(i);
+                try {
+                    applyOne(operation);
+                } catch (JsonParserException ex) {
+                    throw new JsonParserException(fstring("Patch operation #%s (%s %s) failed: %s", i + 1, operation.op().name().toLowerCase(), operation.path(), ex.getMessage()));
+                }
+            }
+        } finally {
+            operations.clear();
+            containers.clear();
+        }
+    }
+
+    private void applyOne(Operation operation) throws JsonParserException {
+        Pointer path = pointer(operation.path());
+        switch (operation.op()) {
+            case ADD -> add(path, require(operation.value()));
+            case REMOVE -> remove(path);
+            case REPLACE -> replace(path, require(operation.value()));
+            case MOVE -> {
+                Pointer from = pointer(operation.from());
+                if (isPrefix(from, path) && from.size() != path.size())
+                    throw new JsonParserException("Cannot move a value into itself");
+                add(path, remove(from));
+            }
+            case COPY -> {
+                JsonElement value = get(pointer(operation.from()));
+                add(path, value.deepCopy());
+            }
+            case TEST -> {
+                JsonElement value = get(path);
+                if (!value.equals(require(operation.value())))
+                    throw new JsonParserException(fstring("Test failed, expected %s but found %s", operation.value(), value));
+            }
+        }
+    }
+
+    private static JsonElement require(JsonElement value) throws JsonParserException {
+        if (value == null) throw new JsonParserException("Missing value");
+        return value;
+    }
+
+    private JsonElement get(Pointer path) throws JsonParserException {
+        if (path.size() == 0) return json;
+        JsonElement parent = container(path, path.size() - 1);
+        JsonElement value = child(parent, path.last());
+        if (value == null) throw new JsonParserException("Path doesn't exist");
+        return value;
+    }
+
+    private void add(Pointer path, JsonElement value) throws JsonParserException {
+        if (path.size() == 0) throw new JsonParserException("Cannot replace the root json");
+        JsonElement parent = container(path, path.size() - 1);
+        String last = path.last();
+        if (parent instanceof JsonObject object) {
+            object.add(last, value);
+            invalidate(path.prefixes()[path.size()], true);
+        } else if (parent instanceof JsonArray array) {
+            if (last.equals("-")) {
+                array.add(value);
+                ListIndex.added(array, value);
+            } else {
+                int index = arrayIndex(last);
+                if (index < 0 || index > array.size())
+                    throw new JsonParserException(fstring("Index %s is out of bounds", last));
+                array.asList().add(index, value);
+                ListIndex.invalidate(array);
+                invalidate(path.prefixes()[path.size() - 1], false);
+            }
+        } else {
+            throw new JsonParserException("Parent doesn't exist or isn't a container");
+        }
+    }
+
+    private void replace(Pointer path, JsonElement value) throws JsonParserException {
+        if (path.size() == 0) throw new JsonParserException("Cannot replace the root json");
+        JsonElement parent = container(path, path.size() - 1);
+        String last = path.last();
+        if (parent instanceof JsonObject object && object.has(last)) {
+            object.add(last, value);
+        } else if (parent instanceof JsonArray array && arrayIndex(last) >= 0 && arrayIndex(last) < array.size()) {
+            int index = arrayIndex(last);
+            ListIndex.replaced(array, index, array.set(index, value), value);
+        } else {
+            throw new JsonParserException("Path doesn't exist");
+        }
+        invalidate(path.prefixes()[path.size()], true);
+    }
+
+    private JsonElement remove(Pointer path) throws JsonParserException {
+        if (path.size() == 0) throw new JsonParserException("Cannot remove the root json");
+        JsonElement parent = container(path, path.size() - 1);
+        String last = path.last();
+        JsonElement removed = null;
+        if (parent instanceof JsonObject object) {
+            removed = object.remove(last);
+            if (removed != null) invalidate(path.prefixes()[path.size()], true);
+        } else if (parent instanceof JsonArray array) {
+            int index = arrayIndex(last);
+            if (index >= 0 && index < array.size()) {
+                removed = array.remove(index);
+                ListIndex.removed(array, index, removed);
+                invalidate(path.prefixes()[path.size() - 1], false);
+            }
+        }
+        if (removed == null) throw new JsonParserException("Path doesn't exist");
+        return removed;
+    }
+
+    /**
+     * Resolve the container at the first {@code depth} tokens, starting from the deepest memoized prefix.
+     */
+    private JsonElement container(Pointer path, int depth) throws JsonParserException {
+        JsonElement current = null;
+        int start = 0;
+        for (int k = depth; k > 0; k--) {
+            current = containers.get(path.prefixes()[k]);
+            if (current != null) {
+                start = k;
+                break;
+            }
+        }
+        if (current == null) current = json;
+        for (int k = start; k < depth; k++) {
+            current = child(current, path.tokens()[k]);
+            if (current == null || !(current.isJsonObject() || current.isJsonArray()))
+                throw new JsonParserException("Path doesn't exist");
+            containers.put(path.prefixes()[k + 1], current);
+        }
+        return current;
+    }
+
+
+    private static JsonElement child(JsonElement current, String token) {
+        if (current instanceof JsonObject object) {
+            return object.get(token);
+        } else if (current instanceof JsonArray array) {
+            int index = arrayIndex(token);
+            return index >= 0 && index < array.size() ? array.get(index) : null;
+        }
+        return null;
+    }
+
+    /**
+     * Forget the memoized containers under the prefix.
+     *
+     * @param prefix    pointer prefix
+     * @param inclusive also forget the prefix itself
+     */
+    private void invalidate(String prefix, boolean inclusive) {
+        if (containers.isEmpty()) return;
+        String children = prefix + "/";
+        containers.keySet().removeIf(key -> (inclusive && key.equals(prefix)) || key.startsWith(children));
+    }
+
+    private static boolean isPrefix(Pointer prefix, Pointer path) {
+        if (prefix.size() > path.size()) return false;
+        for (int i = 0; i < prefix.size(); i++) {
+            if (!prefix.tokens()[i].equals(path.tokens()[i])) return false;
+        }
+        return true;
+    }
+
+    private static int arrayIndex(String token) {
+        if (token.length() > 1 && token.charAt(0) == '0') return -1;
+        int index = CompiledPath.parseIndex(token);
+        return index == CompiledPath.NOT_AN_INDEX || token.charAt(0) == '-' || token.charAt(0) == '+' ? -1 : index;
+    }
+
+    private static Pointer pointer(String path) throws JsonParserException {
+        if (path == null) throw new JsonParserException("Missing path");
+        PointerKey key = new PointerKey(path, path.isEmpty() || path.charAt(0) == '/' ? null : PATH_VARIABLE_DELIMITER);
+        Pointer cached = pointers.get(key);
+        if (cached != null) return cached;
+        String[] tokens;
+        if (path.isEmpty()) {
+            tokens = new String[0];
+        } else if (path.charAt(0) == '/') {
+            String[] raw = path.substring(1).split("/", -1);
+            tokens = new String[raw.length];
+            for (int i = 0; i < raw.length; i++) {
+                tokens[i] = raw[i].replace("~1", "/").replace("~0", "~");
+            }
+        } else {
+            CompiledPath compiled = PatternUtil.compile(path);
+            List<String> keys = new ArrayList<>(compiled.size());
+            for (int i = 0; i < compiled.size(); i++) {
+                if (!compiled.key(i).isEmpty()) keys.add(compiled.key(i));
+            }
+            tokens = keys.toArray(new String[0]);
+        }
+        String[] prefixes = new String[tokens.length + 1];
+        StringBuilder builder = new StringBuilder();
+        prefixes[0] = "";
+        for (int i = 0; i < tokens.length; i++) {
+            builder.append('/').append(tokens[i].replace("~", "~0").replace("/", "~1"));
+            prefixes[i + 1] = builder.toString();
+        }
+        Pointer pointer = new Pointer(tokens, prefixes);
+        pointers.put(key, pointer);
+        return pointer;
+    }
+}
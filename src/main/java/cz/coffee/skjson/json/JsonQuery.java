@@ -0,0 +1,648 @@
+package cz.coffee.skjson.json;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import cz.coffee.skjson.utils.LruCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static cz.coffee.skjson.api.ConfigRecords.PATH_VARIABLE_DELIMITER;
+import static cz.coffee.skjson.utils.CompiledPath.NOT_AN_INDEX;
+import static cz.coffee.skjson.utils.CompiledPath.parseIndex;
+import static cz.coffee.skjson.utils.Util.fstring;
+
+/**
+ * Compiled JSONPath-like query.
+ * <p>
+ * Supported syntax:
+ * <ul>
+ *     <li>{@code $} optional root</li>
+ *     <li>{@code .key}, {@code ['key']} or the configured path delimiter ({@code key::other})</li>
+ *     <li>{@code *} / {@code [*]} all values of an object or an array</li>
+ *     <li>{@code ..key} recursive descent</li>
+ *     <li>{@code [0]}, {@code [-1]} index (negative from the end), {@code [1:3]}, {@code [::2]} slices</li>
+ *     <li>{@code [?(@.level > 10 && @.name != 'x')]} filters, operators {@code == != < <= > >=}, {@code &&}, {@code ||}
+ *     and {@code [?(@.key)]} for existence</li>
+ * </ul>
+ * Queries are compiled once and cached, the evaluation streams every match to a {@link Visitor}
+ * without building intermediate collections.
+ */
+public final class JsonQuery {
+
+    /**
+     * Receives the matches, return false to stop the evaluation.
+     */
+    @FunctionalInterface
+    public interface Visitor {
+        boolean visit(JsonElement match);
+    }
+
+    private record QueryKey(String query, String delimiter) {
+    }
+
+    private static final LruCache<QueryKey, JsonQuery> compiled = new LruCache<>(256);
+
+    private final String source;
+    private final Step[] steps;
+
+    private JsonQuery(String source, Step[] steps) {
+        this.source = source;
+        this.steps = steps;
+    }
+
+    /**
+     * Compile the query, the result is cached.
+     *
+     * @param query the query
+     * @return compiled query
+     * @throws JsonParserException when the query is malformed
+     */
+    public static JsonQuery compile(final String query) throws JsonParserException {
+        if (query == null) throw new JsonParserException("Query cannot be null");
+        String delimiter = PATH_VARIABLE_DELIMITER == null ? "" : PATH_VARIABLE_DELIMITER;
+        QueryKey key = new QueryKey(query, delimiter);
+        JsonQuery cached = compiled.get(key);
+        if (cached != null) return cached;
+        JsonQuery parsed = new JsonQuery(query, new QueryParser(query, delimiter).parse());
+        compiled.put(key, parsed);
+        return parsed;
+    }
+
+    /**
+     * Stream all matches to the visitor.
+     *
+     * @param root    the json
+     * @param visitor receiver of the matches
+     */
+    public void select(final JsonElement root, final Visitor visitor) {
+        if (root == null) return;
+        walk(root, 0, visitor);
+    }
+
+    public List<JsonElement> selectAll(final JsonElement root) {
+        List<JsonElement> results = new ArrayList<>();
+        select(root, match -> results.add(match));
+        return results;
+    }
+
+    public JsonElement first(final JsonElement root) {
+        JsonElement[] found = new JsonElement[1];
+        select(root, match -> {
+            found[0] = match;
+            return false;
+        });
+        return found[0];
+    }
+
+    public int count(final JsonElement root) {
+        int[] count = new int[1];
+        select(root, match -> {
+            count[0]++;
+            return true;
+        });
+        return count[0];
+    }
+
+    /**
+     * Numbers of the matches, other matches are counted only by {@code count}.
+     * The sum is a long while all the numbers are integers (exact), a double otherwise.
+     */
+    public record Stats(long count, long numbers, Number sum, double min, double max) {
+        public double average() {
+            return numbers == 0 ? Double.NaN : sum.doubleValue() / numbers;
+        }
+    }
+
+    /**
+     * Aggregate the matches in one pass.
+     *
+     * @param root the json
+     * @return the statistics of the matched numbers
+     */
+    public Stats stats(final JsonElement root) {
+        Accumulator accumulator = new Accumulator();
+        select(root, accumulator);
+        return accumulator.stats();
+    }
+
+    private static final class Accumulator implements Visitor {
+        private static final double EXACT_LONG = 0x1p53;
+        private long count, numbers, longSum;
+        private double doubleSum, min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+        private boolean integral = true;
+
+        @Override
+        public boolean visit(JsonElement match) {
+            count++;
+            if (match instanceof JsonPrimitive primitive && primitive.isNumber()) {
+                double value = primitive.getAsDouble();
+                numbers++;
+                doubleSum += value;
+                if (integral && value == Math.rint(value) && Math.abs(value) < EXACT_LONG) {
+                    longSum += (long) value;
+                } else {
+                    integral = false;
+                }
+                if (value < min) min = value;
+                if (value > max) max = value;
+            }
+            return true;
+        }
+
+        Stats stats() {
+            return new Stats(count, numbers, integral ? (Number) longSum : (Number) doubleSum, min, max);
+        }
+    }
+
+    private boolean walk(JsonElement node, int i, Visitor visitor) {
+        if (i == steps.length) return visitor.visit(node);
+        return steps[i].apply(node, child -> walk(child, i + 1, visitor));
+    }
+
+    public String source() {
+        return source;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    private interface Step {
+        boolean apply(JsonElement node, Visitor next);
+    }
+
+    private record Name(String key, int index) implements Step {
+        @Override
+        public boolean apply(JsonElement node, Visitor next) {
+            if (node instanceof JsonObject object) {
+                JsonElement value = object.get(key);
+                return value == null || next.visit(value);
+            } else if (node instanceof JsonArray array && index >= 0 && index < array.size()) {
+                return next.visit(array.get(index));
+            }
+            return true;
+        }
+    }
+
+    private record Wildcard() implements Step {
+        @Override
+        public boolean apply(JsonElement node, Visitor next) {
+            if (node instanceof JsonObject object) {
+                for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+                    if (!next.visit(entry.getValue())) return false;
+                }
+            } else if (node instanceof JsonArray array) {
+                for (int i = 0; i < array.size(); i++) {
+                    if (!next.visit(array.get(i))) return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private record Index(int index) implements Step {
+        @Override
+        public boolean apply(JsonElement node, Visitor next) {
+            if (node instanceof JsonArray array) {
+                int i = index < 0 ? array.size() + index : index;
+                if (i >= 0 && i < array.size()) return next.visit(array.get(i));
+            }
+            return true;
+        }
+    }
+
+    private record Slice(Integer start, Integer end, int step) implements Step {
+        @Override
+        public boolean apply(JsonElement node, Visitor next) {
+            if (!(node instanceof JsonArray array)) return true;
+            int size = array.size();
+            if (step > 0) {
+                int from = start == null ? 0 : clamp(start, size, 0, size);
+                int to = end == null ? size : clamp(end, size, 0, size);
+                for (int i = from; i < to; i += step) {
+                    if (!next.visit(array.get(i))) return false;
+                }
+            } else {
+                int from = start == null ? size - 1 : clamp(start, size, -1, size - 1);
+                int to = end == null ? -1 : clamp(end, size, -1, size - 1);
+                for (int i = from; i > to; i += step) {
+                    if (!next.visit(array.get(i))) return false;
+                }
+            }
+            return true;
+        }
+
+        private static int clamp(int value, int size, int min, int max) {
+            if (value < 0) value += size;
+            return Math.max(min, Math.min(value, max));
+        }
+    }
+
+    private record Filter(Condition condition) implements Step {
+        @Override
+        public boolean apply(JsonElement node, Visitor next) {
+            if (node instanceof JsonObject object) {
+                for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+                    if (condition.test(entry.getValue()) && !next.visit(entry.getValue())) return false;
+                }
+            } else if (node instanceof JsonArray array) {
+                for (int i = 0; i < array.size(); i++) {
+                    JsonElement element = array.get(i);
+                    if (condition.test(element) && !next.visit(element)) return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private record Descend(Step inner) implements Step {
+        @Override
+        public boolean apply(JsonElement node, Visitor next) {
+            if (!inner.apply(node, next)) return false;
+            if (node instanceof JsonObject object) {
+                for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+                    JsonElement value = entry.getValue();
+                    if ((value.isJsonObject() || value.isJsonArray()) && !apply(value, next)) return false;
+                }
+            } else if (node instanceof JsonArray array) {
+                for (int i = 0; i < array.size(); i++) {
+                    JsonElement value = array.get(i);
+                    if ((value.isJsonObject() || value.isJsonArray()) && !apply(value, next)) return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private interface Condition {
+        boolean test(JsonElement element);
+    }
+
+    private enum Operator {EQ, NE, LT, LE, GT, GE}
+
+    private record Exists(Step[] field) implements Condition {
+        @Override
+        public boolean test(JsonElement element) {
+            return resolveField(element, field) != null;
+        }
+    }
+
+    private record Compare(Step[] field, Operator operator, JsonPrimitive literal) implements Condition {
+        @Override
+        public boolean test(JsonElement element) {
+            JsonElement value = resolveField(element, field);
+            if (value == null) return false;
+            if (literal == null) {
+                boolean isNull = value.isJsonNull();
+                return operator == Operator.EQ ? isNull : operator == Operator.NE && !isNull;
+            }
+            if (!value.isJsonPrimitive()) return operator == Operator.NE;
+            JsonPrimitive primitive = value.getAsJsonPrimitive();
+            int compared;
+            if (literal.isNumber() && primitive.isNumber()) {
+                compared = Double.compare(primitive.getAsDouble(), literal.getAsDouble());
+            } else if (literal.isString() && primitive.isString()) {
+                compared = primitive.getAsString().compareTo(literal.getAsString());
+            } else if (literal.isBoolean() && primitive.isBoolean()) {
+                if (operator != Operator.EQ && operator != Operator.NE) return false;
+                compared = primitive.getAsBoolean() == literal.getAsBoolean() ? 0 : 1;
+            } else {
+                return operator == Operator.NE;
+            }
+            return switch (operator) {
+                case EQ -> compared == 0;
+                case NE -> compared != 0;
+                case LT -> compared < 0;
+                case LE -> compared <= 0;
+                case GT -> compared > 0;
+                case GE -> compared >= 0;
+            };
+        }
+    }
+
+    private record And(Condition left, Condition right) implements Condition {
+        @Override
+        public boolean test(JsonElement element) {
+            return left.test(element) && right.test(element);
+        }
+    }
+
+    private record Or(Condition left, Condition right) implements Condition {
+        @Override
+        public boolean test(JsonElement element) {
+            return left.test(element) || right.test(element);
+        }
+    }
+
+    private static JsonElement resolveField(JsonElement element, Step[] field) {
+        JsonElement[] current = {element};
+        for (Step step : field) {
+            JsonElement from = current[0];
+            current[0] = null;
+            step.apply(from, child -> {
+                current[0] = child;
+                return false;
+            });
+            if (current[0] == null) return null;
+        }
+        return current[0];
+    }
+
+    private static final class QueryParser {
+        private final String query;
+        private final String delimiter;
+        private int pos;
+
+        QueryParser(String query, String delimiter) {
+            this.query = query.trim();
+            this.delimiter = delimiter;
+        }
+
+        Step[] parse() throws JsonParserException {
+            List<Step> steps = new ArrayList<>();
+            if (query.startsWith("$")) pos++;
+            boolean first = true;
+            while (pos < query.length()) {
+                if (query.startsWith("..", pos)) {
+                    pos += 2;
+                    steps.add(new Descend(peek() == '[' ? bracket() : name()));
+                } else if (peek() == '.') {
+                    pos++;
+                    steps.add(name());
+                } else if (!delimiter.isEmpty() && query.startsWith(delimiter, pos)) {
+                    pos += delimiter.length();
+                    steps.add(name());
+                } else if (peek() == '[') {
+                    steps.add(bracket());
+                } else if (first) {
+                    steps.add(name());
+                } else {
+                    throw error("Unexpected character '%s'", peek());
+                }
+                first = false;
+            }
+            return steps.toArray(new Step[0]);
+        }
+
+        private char peek() {
+            return pos < query.length() ? query.charAt(pos) : '\0';
+        }
+
+        private boolean isNameEnd(int i) {
+            char c = query.charAt(i);
+            return c == '.' || c == '[' || (!delimiter.isEmpty() && query.startsWith(delimiter, i));
+        }
+
+        private Step name() throws JsonParserException {
+            int start = pos;
+            while (pos < query.length() && !isNameEnd(pos)) pos++;
+            String name = query.substring(start, pos);
+            if (name.isEmpty()) throw error("Expected a key");
+            if (name.equals("*")) return new Wildcard();
+            return new Name(name, parseIndex(name));
+        }
+
+        private Step bracket() throws JsonParserException {
+            pos++;
+            skipWhitespace();
+            Step step;
+            char c = peek();
+            if (c == '?') {
+                pos++;
+                skipWhitespace();
+                expect('(');
+                int end = closingParenthesis();
+                FilterParser filter = new FilterParser(query.substring(pos, end));
+                step = new Filter(filter.parse());
+                pos = end + 1;
+            } else if (c == '\'' || c == '"') {
+                String key = quoted();
+                step = new Name(key, -1);
+            } else if (c == '*') {
+                pos++;
+                step = new Wildcard();
+            } else {
+                int close = query.indexOf(']', pos);
+                if (close == -1) throw error("Missing ']'");
+                String content = query.substring(pos, close).trim();
+                pos = close;
+                if (content.contains(":")) {
+                    step = slice(content);
+                } else {
+                    int index = parseIndex(content);
+                    step = index == NOT_AN_INDEX ? new Name(content, -1) : new Index(index);
+                }
+            }
+            skipWhitespace();
+            expect(']');
+            return step;
+        }
+
+        private Step slice(String content) throws JsonParserException {
+            String[] parts = content.split(":", -1);
+            if (parts.length > 3) throw error("Invalid slice '%s'", content);
+            Integer start = sliceBound(parts[0]);
+            Integer end = sliceBound(parts[1]);
+            Integer step = parts.length == 3 ? sliceBound(parts[2]) : null;
+            if (step != null && step == 0) throw error("Slice step cannot be 0");
+            return new Slice(start, end, step == null ? 1 : step);
+        }
+
+        private Integer sliceBound(String value) throws JsonParserException {
+            value = value.trim();
+            if (value.isEmpty()) return null;
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException ex) {
+                throw error("Invalid slice number '%s'", value);
+            }
+        }
+
+        private int closingParenthesis() throws JsonParserException {
+            int depth = 1;
+            char quote = 0;
+            for (int i = pos; i < query.length(); i++) {
+                char c = query.charAt(i);
+                if (quote != 0) {
+                    if (c == '\\') i++;
+                    else if (c == quote) quote = 0;
+                } else if (c == '\'' || c == '"') {
+                    quote = c;
+                } else if (c == '(') {
+                    depth++;
+                } else if (c == ')' && --depth == 0) {
+                    return i;
+                }
+            }
+            throw error("Missing ')' of the filter");
+        }
+
+        private String quoted() throws JsonParserException {
+            char quote = query.charAt(pos++);
+            StringBuilder builder = new StringBuilder();
+            while (pos < query.length()) {
+                char c = query.charAt(pos++);
+                if (c == '\\' && pos < query.length()) {
+                    builder.append(query.charAt(pos++));
+                } else if (c == quote) {
+                    return builder.toString();
+                } else {
+                    builder.append(c);
+                }
+            }
+            throw error("Unclosed quote");
+        }
+
+        private void expect(char c) throws JsonParserException {
+            if (peek() != c) throw error("Expected '%s'", c);
+            pos++;
+        }
+
+        private void skipWhitespace() {
+            while (pos < query.length() && Character.isWhitespace(query.charAt(pos))) pos++;
+        }
+
+        private JsonParserException error(String message, Object... args) {
+            return new JsonParserException(fstring("Invalid json query '%s' at %s: ", query, pos) + fstring(message, args));
+        }
+
+        private final class FilterParser {
+            private final String expression;
+            private int at;
+
+            FilterParser(String expression) {
+                this.expression = expression;
+            }
+
+            Condition parse() throws JsonParserException {
+                Condition condition = or();
+                skip();
+                if (at < expression.length()) throw error("Unexpected '%s' in the filter", expression.substring(at));
+                return condition;
+            }
+
+            private Condition or() throws JsonParserException {
+                Condition left = and();
+                while (consume("||")) left = new Or(left, and());
+                return left;
+            }
+
+            private Condition and() throws JsonParserException {
+                Condition left = comparison();
+                while (consume("&&")) left = new And(left, comparison());
+                return left;
+            }
+
+            private Condition comparison() throws JsonParserException {
+                skip();
+                if (consume("(")) {
+                    Condition inner = or();
+                    if (!consume(")")) throw error("Missing ')' in the filter");
+                    return inner;
+                }
+                if (!consume("@")) throw error("The filter has to start with '@'");
+                Step[] field = field();
+                Operator operator = operator();
+                if (operator == null) return new Exists(field);
+                return new Compare(field, operator, literal());
+            }
+
+            private Step[] field() throws JsonParserException {
+                List<Step> steps = new ArrayList<>();
+                while (at < expression.length()) {
+                    char c = expression.charAt(at);
+                    if (c == '.') {
+                        int start = ++at;
+                        while (at < expression.length() && isFieldChar(expression.charAt(at))) at++;
+                        String name = expression.substring(start, at);
+                        if (name.isEmpty()) throw error("Expected a key after '@.'");
+                        steps.add(new Name(name, parseIndex(name)));
+                    } else if (c == '[') {
+                        int close = expression.indexOf(']', at);
+                        if (close == -1) throw error("Missing ']' in the filter");
+                        String content = expression.substring(at + 1, close).trim();
+                        at = close + 1;
+                        if (content.length() > 1 && (content.charAt(0) == '\'' || content.charAt(0) == '"')) {
+                            steps.add(new Name(content.substring(1, content.length() - 1), -1));
+                        } else {
+                            int index = parseIndex(content);
+                            steps.add(index == NOT_AN_INDEX ? new Name(content, -1) : new Index(index));
+                        }
+                    } else {
+                        break;
+                    }
+                }
+                return steps.toArray(new Step[0]);
+            }
+
+            private boolean isFieldChar(char c) {
+                return !Character.isWhitespace(c) && "=!<>&|().[]".indexOf(c) == -1;
+            }
+
+            private Operator operator() {
+                skip();
+                if (consume("==")) return Operator.EQ;
+                if (consume("!=")) return Operator.NE;
+                if (consume("<=")) return Operator.LE;
+                if (consume(">=")) return Operator.GE;
+                if (consume("<")) return Operator.LT;
+                if (consume(">")) return Operator.GT;
+                return null;
+            }
+
+            private JsonPrimitive literal() throws JsonParserException {
+                skip();
+                if (at >= expression.length()) throw error("Missing value in the filter");
+                char c = expression.charAt(at);
+                if (c == '\'' || c == '"') {
+                    StringBuilder builder = new StringBuilder();
+                    at++;
+                    while (at < expression.length()) {
+                        char ch = expression.charAt(at++);
+                        if (ch == '\\' && at < expression.length()) builder.append(expression.charAt(at++));
+                        else if (ch == c) return new JsonPrimitive(builder.toString());
+                        else builder.append(ch);
+                    }
+                    throw error("Unclosed quote in the filter");
+                }
+                int start = at;
+                while (at < expression.length() && (isFieldChar(expression.charAt(at)) || expression.charAt(at) == '.')) at++;
+                String token = expression.substring(start, at);
+                switch (token) {
+                    case "true" -> {
+                        return new JsonPrimitive(true);
+                    }
+                    case "false" -> {
+                        return new JsonPrimitive(false);
+                    }
+                    case "null" -> {
+                        return null;
+                    }
+                }
+                try {
+                    return new JsonPrimitive(Double.parseDouble(token));
+                } catch (NumberFormatException ex) {
+                    throw error("Invalid value '%s' in the filter", token);
+                }
+            }
+
+            private boolean consume(String token) {
+                skip();
+                if (expression.startsWith(token, at)) {
+                    at += token.length();
+                    return true;
+                }
+                return false;
+            }
+
+            private void skip() {
+                while (at < expression.length() && Character.isWhitespace(expression.charAt(at))) at++;
+            }
+        }
+    }
+}
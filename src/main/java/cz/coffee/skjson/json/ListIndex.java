@@ -0,0 +1,199 @@
+package cz.coffee.skjson.json;
+
+import com.google.common.collect.MapMaker;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Opt-in value index of json lists ({@link StructuralHash structural hash} of a value to its positions).
+ * <p>
+ * An index is created for one list instance by {@link #build(JsonArray)} and then answers {@code index of value}
+ * and {@code has value} without comparing the whole list. Only the primitive values of the list are hashed,
+ * objects and lists in the list are compared directly, they are shared between variables and can be changed
+ * through them. Values added to the end of a list, removed from its end or replaced through skJson update
+ * the index ({@link #added}, {@link #removed}, {@link #replaced}), other changes of the list (e.g. a removal
+ * which shifts the next values) mark the index as stale ({@link #invalidate}) and it's rebuilt on the next lookup.
+ * Changes made to the list by other code are not seen.
+ */
+public abstract class ListIndex {
+
+    private static final ConcurrentMap<JsonArray, Index> indexes = new MapMaker().weakKeys().makeMap();
+
+    private static final class Index {
+        private final HashMap<Long, int[]> positions = new HashMap<>();
+        private final BitSet containers = new BitSet();
+        private boolean stale = true;
+
+        private void rebuild(JsonArray array) {
+            positions.clear();
+            containers.clear();
+            for (int i = 0; i < array.size(); i++) {
+                put(i, array.get(i));
+            }
+            stale = false;
+        }
+
+        private void put(int position, JsonElement element) {
+            if (StructuralHash.isContainer(element)) {
+                containers.set(position);
+                return;
+            }
+            positions.merge(StructuralHash.hash(element), new int[]{position}, (found, added) -> {
+                // positions are sorted, so the first match is the first equal value of the list
+                int at = -Arrays.binarySearch(found, position) - 1;
+                if (at < 0) return found;
+                int[] merged = new int[found.length + 1];
+                System.arraycopy(found, 0, merged, 0, at);
+                merged[at] = position;
+                System.arraycopy(found, at, merged, at + 1, found.length - at);
+                return merged;
+            });
+        }
+
+        private void take(int position, JsonElement element) {
+            if (StructuralHash.isContainer(element)) {
+                containers.clear(position);
+                return;
+            }
+            positions.computeIfPresent(StructuralHash.hash(element), (hash, found) -> {
+                int at = Arrays.binarySearch(found, position);
+                if (at < 0) return found;
+                if (found.length == 1) return null;
+                int[] rest = new int[found.length - 1];
+                System.arraycopy(found, 0, rest, 0, at);
+                System.arraycopy(found, at + 1, rest, at, rest.length - at);
+                return rest;
+            });
+        }
+
+        private boolean flat() {
+            return containers.isEmpty();
+        }
+
+        private synchronized int indexOf(JsonArray array, JsonElement value) {
+            if (stale) rebuild(array);
+            if (StructuralHash.isContainer(value)) {
+                for (int i = containers.nextSetBit(0); i >= 0 && i < array.size(); i = containers.nextSetBit(i + 1)) {
+                    if (DeepSearch.matches(array.get(i), value)) return i;
+                }
+                return -1;
+            }
+            int[] found = positions.get(StructuralHash.hash(value));
+            if (found == null) return -1;
+            for (int i : found) {
+                if (i < array.size() && DeepSearch.matches(array.get(i), value)) return i;
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Create (or refresh) the index of the list.
+     */
+    public static void build(final JsonArray array) {
+        if (array == null) return;
+        Index index = indexes.computeIfAbsent(array, k -> new Index());
+        synchronized (index) {
+            index.rebuild(array);
+        }
+    }
+
+    /**
+     * Remove the index of the list.
+     */
+    public static void drop(final JsonArray array) {
+        if (array != null) indexes.remove(array);
+    }
+
+    public static boolean isIndexed(final JsonElement element) {
+        return element instanceof JsonArray && !indexes.isEmpty() && indexes.containsKey(element);
+    }
+
+    static boolean active() {
+        return !indexes.isEmpty();
+    }
+
+    /**
+     * Position of the first element equal to the value.
+     *
+     * @return the position, {@code -1} when the value isn't in the list or the list isn't indexed
+     */
+    public static int indexOf(final JsonArray array, final JsonElement value) {
+        Index index = indexes.isEmpty() ? null : indexes.get(array);
+        return index == null ? -1 : index.indexOf(array, value);
+    }
+
+    /**
+     * Lookup for {@link DeepSearch#hasValue(JsonElement, JsonElement)}.
+     *
+     * @return true/false when the index gives the answer for the whole list, null when the list has to be searched deeper
+     */
+    static Boolean contains(final JsonElement element, final JsonElement value) {
+        if (!(element instanceof JsonArray array) || indexes.isEmpty()) return null;
+        Index index = indexes.get(array);
+        if (index == null) return null;
+        synchronized (index) {
+            if (index.indexOf(array, value) != -1) return true;
+            return index.flat() ? false : null;
+        }
+    }
+
+    private static Index of(final JsonElement element) {
+        return element instanceof JsonArray && !indexes.isEmpty() ? indexes.get(element) : null;
+    }
+
+    /**
+     * Update the index after the element was added to the end of the list.
+     */
+    public static void added(final JsonArray array, final JsonElement element) {
+        Index index = of(array);
+        if (index == null) return;
+        synchronized (index) {
+            if (!index.stale) index.put(array.size() - 1, element);
+        }
+    }
+
+    /**
+     * Update the index after the element was removed from the position of the list,
+     * a removal before the end shifts the next values and the index becomes stale.
+     */
+    public static void removed(final JsonArray array, final int position, final JsonElement element) {
+        Index index = of(array);
+        if (index == null) return;
+        synchronized (index) {
+            if (index.stale) return;
+            if (position == array.size()) index.take(position, element);
+            else index.stale = true;
+        }
+    }
+
+    /**
+     * Update the index after the value on the position of the list was replaced.
+     */
+    public static void replaced(final JsonArray array, final int position, final JsonElement previous, final JsonElement element) {
+        Index index = of(array);
+        if (index == null) return;
+        synchronized (index) {
+            if (index.stale) return;
+            index.take(position, previous);
+            index.put(position, element);
+        }
+    }
+
+    /**
+     * Mark the index of the list as stale, has to be called when the list was changed.
+     */
+    public static void invalidate(final JsonElement element) {
+        Index index = of(element);
+        if (index != null) {
+            synchronized (index) {
+                index.stale = true;
+            }
+        }
+    }
+}
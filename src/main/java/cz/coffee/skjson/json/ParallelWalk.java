@@ -0,0 +1,191 @@
+package cz.coffee.skjson.json;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+import static cz.coffee.skjson.api.ConfigRecords.PARALLEL_THRESHOLD;
+
+/**
+ * Fork/join variants of the counting ({@link JsonParserRecords.Counter}) and searching ({@link DeepSearch}) walks.
+ * <p>
+ * The children of a container are split into ranges which are walked as tasks of the common pool, a container
+ * with many children found inside a range is split the same way. The results are the same as the results
+ * of the sequential walks, only the order of the visits differs. Small jsons should use the sequential walks,
+ * see {@link #isLarge(JsonElement)}.
+ */
+final class ParallelWalk {
+
+    /**
+     * Max count of children walked by one task.
+     */
+    private static final int GRAIN = 512;
+
+    private ParallelWalk() {
+    }
+
+    /**
+     * Match of one child of a container, the key is null for the elements of an array.
+     */
+    private interface Probe {
+        boolean test(String key, JsonElement child);
+    }
+
+    /**
+     * Estimate the count of nodes from the first two levels of the json.
+     *
+     * @param root the root element
+     * @return true when the json has at least {@code settings.parallel-threshold} nodes and there are more threads to use
+     */
+    static boolean isLarge(final JsonElement root) {
+        final int threshold = PARALLEL_THRESHOLD;
+        if (threshold <= 0 || ForkJoinPool.getCommonPoolParallelism() < 2) return false;
+        long nodes = 0;
+        if (root instanceof JsonObject object) {
+            for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+                nodes += 1 + size(entry.getValue());
+                if (nodes >= threshold) return true;
+            }
+        } else if (root instanceof JsonArray array) {
+            for (int i = 0; i < array.size(); i++) {
+                nodes += 1 + size(array.get(i));
+                if (nodes >= threshold) return true;
+            }
+        }
+        return false;
+    }
+
+    private static int size(JsonElement element) {
+        if (element instanceof JsonObject object) return object.size();
+        if (element instanceof JsonArray array) return array.size();
+        return 0;
+    }
+
+    static int countKeys(final JsonElement root, final String key) {
+        return ForkJoinPool.commonPool().invoke(Scan.of((k, child) -> key.equals(k), null, root, 1, 0, null));
+    }
+
+    static int countValues(final JsonElement root, final JsonElement value) {
+        Predicate<JsonElement> equalToValue = StructuralHash.equalTo(value);
+        return ForkJoinPool.commonPool().invoke(Scan.of((k, child) -> k != null && equalToValue.test(child), null, root, 1, 0, null));
+    }
+
+    static boolean hasKey(final JsonElement root, final String key, final int maxDepth) {
+        return ForkJoinPool.commonPool().invoke(Scan.of((k, child) -> key.equals(k), null, root, 1, maxDepth, new AtomicBoolean())) > 0;
+    }
+
+    static boolean hasValue(final JsonElement root, final JsonElement value, final int maxDepth) {
+        Boolean indexed = ListIndex.contains(root, value);
+        if (indexed != null) return indexed;
+        Predicate<JsonElement> equalToValue = StructuralHash.equalTo(value);
+        return ForkJoinPool.commonPool().invoke(Scan.of((k, child) -> equalToValue.test(child), value, root, 1, maxDepth, new AtomicBoolean())) > 0;
+    }
+
+    /**
+     * Walk of a range of children of one container.
+     * The container is on the {@code level} (root is 1), its children are compared by the probe and walked further.
+     * When {@code found} is set the walk stops on the first match. When {@code indexed} is set (only with
+     * {@code found}), the lists with a {@link ListIndex} are searched for it by the index.
+     */
+    private static final class Scan extends RecursiveTask<Integer> {
+        private final Probe probe;
+        private final JsonElement indexed;
+        private final List<Map.Entry<String, JsonElement>> entries;
+        private final List<JsonElement> elements;
+        private final int from, to, level, maxDepth;
+        private final AtomicBoolean found;
+
+        private Scan(Probe probe, JsonElement indexed, List<Map.Entry<String, JsonElement>> entries, List<JsonElement> elements, int from, int to, int level, int maxDepth, AtomicBoolean found) {
+            this.probe = probe;
+            this.indexed = indexed;
+            this.entries = entries;
+            this.elements = elements;
+            this.from = from;
+            this.to = to;
+            this.level = level;
+            this.maxDepth = maxDepth;
+            this.found = found;
+        }
+
+        static Scan of(Probe probe, JsonElement indexed, JsonElement container, int level, int maxDepth, AtomicBoolean found) {
+            if (container instanceof JsonObject object) {
+                List<Map.Entry<String, JsonElement>> entries = new ArrayList<>(object.entrySet());
+                return new Scan(probe, indexed, entries, null, 0, entries.size(), level, maxDepth, found);
+            } else if (container instanceof JsonArray array) {
+                return new Scan(probe, indexed, null, array.asList(), 0, array.size(), level, maxDepth, found);
+            }
+            return new Scan(probe, indexed, null, List.of(), 0, 0, level, maxDepth, found);
+        }
+
+        private boolean stopped() {
+            return found != null && found.get();
+        }
+
+        @Override
+        protected Integer compute() {
+            if (stopped() || (maxDepth > 0 && level > maxDepth)) return 0;
+            if (to - from > GRAIN) {
+                int middle = (from + to) >>> 1;
+                Scan left = new Scan(probe, indexed, entries, elements, from, middle, level, maxDepth, found);
+                left.fork();
+                int right = new Scan(probe, indexed, entries, elements, middle, to, level, maxDepth, found).compute();
+                return right + left.join();
+            }
+            int count = 0;
+            for (int i = from; i < to && !stopped(); i++) {
+                if (entries != null) {
+                    Map.Entry<String, JsonElement> entry = entries.get(i);
+                    count += visit(entry.getKey(), entry.getValue(), level);
+                } else {
+                    count += visit(null, elements.get(i), level);
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Compare one child of a container on the level and walk it, big containers are split into new tasks.
+         */
+        private int visit(String key, JsonElement child, int depth) {
+            int count = 0;
+            if (probe.test(key, child)) {
+                if (found != null) {
+                    found.set(true);
+                    return 1;
+                }
+                count++;
+            }
+            int size = size(child);
+            if (size == 0 || (maxDepth > 0 && depth + 1 > maxDepth)) return count;
+            if (indexed != null) {
+                Boolean contains = ListIndex.contains(child, indexed);
+                if (contains != null) {
+                    if (!contains) return count;
+                    found.set(true);
+                    return 1;
+                }
+            }
+            if (size > GRAIN) return count + Scan.of(probe, indexed, child, depth + 1, maxDepth, found).compute();
+            if (child instanceof JsonObject object) {
+                for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+                    if (stopped()) break;
+                    count += visit(entry.getKey(), entry.getValue(), depth + 1);
+                }
+            } else {
+                JsonArray array = (JsonArray) child;
+                for (int i = 0; i < array.size() && !stopped(); i++) {
+                    count += visit(null, array.get(i), depth + 1);
+                }
+            }
+            return count;
+        }
+    }
+}
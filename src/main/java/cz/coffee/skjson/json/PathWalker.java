@@ -0,0 +1,80 @@
+package cz.coffee.skjson.json;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import cz.coffee.skjson.utils.CompiledPath;
+
+/**
+ * Cursor based traversal shared by the {@link JsonParserRecords}.
+ * <p>
+ * The walk keeps the current node in a local variable and resolves array indexes from the
+ * integers pre-parsed by {@link CompiledPath}, so a lookup doesn't allocate anything.
+ * A missing key, an index out of bounds, a non-numeric key on an array or a step into a primitive
+ * is a miss and results in {@code null}, nothing is thrown or logged.
+ */
+final class PathWalker {
+
+    private PathWalker() {
+    }
+
+    /**
+     * Walk the whole path.
+     *
+     * @param root the root element
+     * @param path compiled path
+     * @return the element at the end of the path or null
+     */
+    static JsonElement resolve(final JsonElement root, final CompiledPath path) {
+        return resolve(root, path, path.size());
+    }
+
+    /**
+     * Walk the first {@code end} segments of the path.
+     *
+     * @param root the root element
+     * @param path compiled path
+     * @param end  count of segments to walk
+     * @return the element reached or null
+     */
+    static JsonElement resolve(final JsonElement root, final CompiledPath path, final int end) {
+        JsonElement current = root;
+        for (int i = 0; i < end; i++) {
+            if (current == null) return null;
+            current = step(current, path, i);
+        }
+        return current;
+    }
+
+    /**
+     * Resolve the parent of the last segment.
+     */
+    static JsonElement parent(final JsonElement root, final CompiledPath path) {
+        if (path.isEmpty()) return null;
+        return resolve(root, path, path.size() - 1);
+    }
+
+    /**
+     * Single step from the current element by the i-th segment.
+     *
+     * @return the child or null
+     */
+    static JsonElement step(final JsonElement current, final CompiledPath path, final int i) {
+        if (current instanceof JsonObject object) {
+            return object.get(path.key(i));
+        } else if (current instanceof JsonArray array) {
+            int index = path.index(i);
+            if (index < 0 || index >= array.size()) return null;
+            return array.get(index);
+        }
+        return null;
+    }
+
+    /**
+     * @return the index when the i-th segment is a valid index of the array, -1 otherwise
+     */
+    static int indexIn(final JsonArray array, final CompiledPath path, final int i) {
+        int index = path.index(i);
+        return index >= 0 && index < array.size() ? index : -1;
+    }
+}
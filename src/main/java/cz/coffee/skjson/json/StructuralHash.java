@@ -0,0 +1,125 @@
+package cz.coffee.skjson.json;
+
+import com.google.common.collect.MapMaker;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+import static cz.coffee.skjson.api.ConfigRecords.FEATURE_STRUCTURAL_HASH;
+
+/**
+ * 64-bit structural (Merkle like) hashes of jsons.
+ * <p>
+ * The hash of an object doesn't depend on the order of its entries and numbers hash by their double value,
+ * so two elements which are {@link JsonElement#equals(Object) equal} always have the same hash. The hashes
+ * of containers are cached only for one operation ({@link #equalTo(JsonElement)}): jsons are shared between
+ * variables and can be changed through any of them, so a hash kept across operations could be stale.
+ * The feature is opt-in ({@code settings.features.structural-hash}).
+ */
+public abstract class StructuralHash {
+
+    private static final long TAG_NULL = 0x6a09e667f3bcc908L;
+    private static final long TAG_TRUE = 0xbb67ae8584caa73bL;
+    private static final long TAG_FALSE = 0x3c6ef372fe94f82bL;
+    private static final long TAG_NUMBER = 0xa54ff53a5f1d36f1L;
+    private static final long TAG_STRING = 0x510e527fade682d1L;
+    private static final long TAG_OBJECT = 0x9b05688c2b3e6c1fL;
+    private static final long TAG_ARRAY = 0x1f83d9abfb41bd6bL;
+
+    public static boolean enabled() {
+        return FEATURE_STRUCTURAL_HASH;
+    }
+
+    /**
+     * Equality with the value, with the same result as {@link JsonElement#equals(Object)}.
+     * <p>
+     * The predicate is meant for one operation comparing many candidates with the value (a search, a count,
+     * removing of values), when the feature is enabled containers are compared by their hashes first and the
+     * hashes computed by the predicate are reused by the next comparisons of the operation.
+     */
+    public static Predicate<JsonElement> equalTo(final JsonElement value) {
+        if (FEATURE_STRUCTURAL_HASH && isContainer(value)) return new Matcher(value);
+        return candidate -> candidate == value || (candidate != null && DeepSearch.matches(candidate, value));
+    }
+
+    /**
+     * The hash of the element, computed again on every call.
+     */
+    public static long hash(final JsonElement element) {
+        return hash(element, null);
+    }
+
+    private static long hash(final JsonElement element, final Map<JsonElement, Long> cache) {
+        if (element == null || element.isJsonNull()) return TAG_NULL;
+        if (element instanceof JsonPrimitive primitive) return hashPrimitive(primitive);
+        Long cached = cache == null ? null : cache.get(element);
+        if (cached != null) return cached;
+        long hash;
+        if (element instanceof JsonObject object) {
+            hash = TAG_OBJECT + object.size();
+            for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+                hash += mix(entry.getKey().hashCode() * 0x9e3779b97f4a7c15L ^ hash(entry.getValue(), cache));
+            }
+        } else {
+            JsonArray array = (JsonArray) element;
+            hash = TAG_ARRAY + array.size();
+            for (int i = 0; i < array.size(); i++) {
+                hash = hash * 31 + hash(array.get(i), cache);
+            }
+        }
+        hash = mix(hash);
+        if (cache != null) cache.put(element, hash);
+        return hash;
+    }
+
+    private static long hashPrimitive(JsonPrimitive primitive) {
+        if (primitive.isBoolean()) return primitive.getAsBoolean() ? TAG_TRUE : TAG_FALSE;
+        if (primitive.isNumber()) {
+            double value = primitive.getAsDouble();
+            if (value == 0.0) value = 0.0;
+            return mix(TAG_NUMBER ^ Double.doubleToLongBits(value));
+        }
+        return mix(TAG_STRING ^ primitive.getAsString().hashCode());
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    static boolean isContainer(JsonElement element) {
+        return element != null && (element.isJsonObject() || element.isJsonArray());
+    }
+
+    /**
+     * Comparison of candidates with one container, the hashes of the walked containers are cached
+     * (weak identity keys, safe for the {@link ParallelWalk} tasks) until the matcher is dropped.
+     */
+    private static final class Matcher implements Predicate<JsonElement> {
+        private final ConcurrentMap<JsonElement, Long> hashes = new MapMaker().weakKeys().makeMap();
+        private final JsonElement value;
+        private final long hash;
+
+        private Matcher(JsonElement value) {
+            this.value = value;
+            this.hash = hash(value, hashes);
+        }
+
+        @Override
+        public boolean test(JsonElement candidate) {
+            if (candidate == value) return true;
+            if (candidate == null || candidate.getClass() != value.getClass() || size(candidate) != size(value)) return false;
+            return hash(candidate, hashes) == hash && DeepSearch.matches(candidate, value);
+        }
+
+        private static int size(JsonElement container) {
+            return container instanceof JsonObject object ? object.size() : ((JsonArray) container).size();
+        }
+    }
+}
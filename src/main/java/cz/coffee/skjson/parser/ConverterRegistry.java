@@ -0,0 +1,169 @@
+package cz.coffee.skjson.parser;
+
+import ch.njol.skript.aliases.ItemData;
+import ch.njol.skript.aliases.ItemType;
+import ch.njol.skript.util.slot.Slot;
+import ch.njol.yggdrasil.YggdrasilSerializable;
+import com.google.gson.JsonElement;
+import cz.coffee.skjson.skript.base.SimpleConverter;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static cz.coffee.skjson.api.ConfigRecords.PROJECT_DEBUG;
+import static cz.coffee.skjson.parser.ParserUtil.GsonConverter;
+import static cz.coffee.skjson.skript.base.Converter.*;
+import static cz.coffee.skjson.utils.Logger.error;
+
+/**
+ * Converters of objects to json (and back), resolved once per class.
+ * <p>
+ * The first registered converter whose type is assignable from the class of the object is used, converters
+ * registered through {@link #register(Class, Adapter)} / {@link #register(Class, SimpleConverter)} are checked
+ * before the converters of skJson, the newest first. Objects without a converter are serialized by
+ * {@link ParserUtil#GsonConverter}. The resolution is cached by a {@link ClassValue}, so an object of an already
+ * seen class doesn't probe any types.
+ * <pre>{@code
+ * ConverterRegistry.register(Arena.class, arena -> {
+ *     JsonObject json = new JsonObject();
+ *     json.addProperty("name", arena.getName());
+ *     return json;
+ * });
+ * }</pre>
+ */
+public abstract class ConverterRegistry {
+
+    /**
+     * Conversion of an object to json, {@code null} result means the object can't be converted.
+     *
+     * @param <T> the type of the object
+     */
+    @FunctionalInterface
+    public interface Adapter<T> {
+        @Nullable JsonElement toJson(T source) throws Exception;
+    }
+
+    private record Entry(Class<?> type, Adapter<Object> adapter, @Nullable SimpleConverter<?> converter, boolean builtin) {
+    }
+
+    /**
+     * Converters of one class, the adapter for {@link #toJson(Object)} and the converter for {@link #converterOf(Class)}.
+     */
+    private record Resolved(Adapter<Object> adapter, @Nullable SimpleConverter<?> converter, boolean builtin) {
+    }
+
+    private static final Adapter<Object> FALLBACK = source -> GsonConverter.toJsonTree(source);
+
+    private static final List<Entry> entries = new CopyOnWriteArrayList<>();
+    private static volatile ClassValue<Resolved> resolved = newResolver();
+
+    static {
+        builtin(JsonElement.class, source -> source, null);
+        builtin(String.class, ParserUtil::defaultConverter, null);
+        builtin(Number.class, ParserUtil::defaultConverter, null);
+        builtin(Boolean.class, ParserUtil::defaultConverter, null);
+        builtin(ItemType.class, item -> ItemStackConverter.toJson(item.getRandom()), null);
+        builtin(ItemStack.class, ItemStackConverter::toJson, ItemStackConverter);
+        builtin(Slot.class, slot -> ItemStackConverter.toJson(slot.getItem()), null);
+        builtin(ItemData.class, data -> ItemStackConverter.toJson(data.getStack()), null);
+        builtin(World.class, WorldConverter::toJson, WorldConverter);
+        builtin(Chunk.class, ChunkConverter::toJson, ChunkConverter);
+        builtin(Block.class, BlockConverter::toJson, BlockConverter);
+        builtin(Inventory.class, InventoryConverter::toJson, InventoryConverter);
+        builtin(YggdrasilSerializable.class, FALLBACK, null);
+        builtin(ConfigurationSerializable.class, FALLBACK, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void builtin(Class<T> type, Adapter<? super T> adapter, @Nullable SimpleConverter<? extends T> converter) {
+        entries.add(new Entry(type, (Adapter<Object>) adapter, converter, true));
+    }
+
+    private static ClassValue<Resolved> newResolver() {
+        return new ClassValue<>() {
+            @Override
+            protected Resolved computeValue(@NotNull Class<?> type) {
+                Adapter<Object> adapter = null;
+                SimpleConverter<?> converter = null;
+                boolean builtin = true;
+                for (Entry entry : entries) {
+                    if (!entry.type().isAssignableFrom(type)) continue;
+                    if (adapter == null) {
+                        adapter = entry.adapter();
+                        builtin = entry.builtin();
+                    }
+                    if (converter == null) converter = entry.converter();
+                    if (converter != null) break;
+                }
+                return new Resolved(adapter == null ? FALLBACK : adapter, converter, builtin);
+            }
+        };
+    }
+
+    /**
+     * Register the converter for the type and its subtypes.
+     *
+     * @param type    the type
+     * @param adapter the conversion to json
+     * @param <T>     the type
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> void register(@NotNull Class<T> type, @NotNull Adapter<? super T> adapter) {
+        entries.add(0, new Entry(type, (Adapter<Object>) adapter, null, false));
+        resolved = newResolver();
+    }
+
+    /**
+     * Register the converter for the type and its subtypes, the converter is also used by {@link ParserUtil#from(JsonElement)}
+     * for jsons which are serialized objects of the type.
+     *
+     * @param type      the type
+     * @param converter the converter
+     * @param <T>       the type
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> void register(@NotNull Class<T> type, @NotNull SimpleConverter<T> converter) {
+        entries.add(0, new Entry(type, source -> converter.toJson((T) source), converter, false));
+        resolved = newResolver();
+    }
+
+    /**
+     * Convert the object by the converter of its class.
+     *
+     * @param source the object
+     * @return the json or null when the conversion failed
+     */
+    public static @Nullable JsonElement toJson(@NotNull Object source) {
+        try {
+            return resolved.get(source.getClass()).adapter().toJson(source);
+        } catch (Exception ex) {
+            if (PROJECT_DEBUG) error(ex);
+            return null;
+        }
+    }
+
+    /**
+     * Whether objects of the class are converted by a converter of skJson (not by a registered one).
+     */
+    static boolean isBuiltin(@NotNull Class<?> type) {
+        return resolved.get(type).builtin();
+    }
+
+    /**
+     * Converter which is able to read the serialized objects of the class.
+     *
+     * @param type the class from the serialized json
+     * @return the converter or null, when the json should be read by {@link ParserUtil#GsonConverter}
+     */
+    public static @Nullable SimpleConverter<?> converterOf(@NotNull Class<?> type) {
+        return resolved.get(type).converter();
+    }
+}
@@ -0,0 +1,118 @@
+package cz.coffee.skjson.parser;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import cz.coffee.skjson.utils.LruCache;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import static cz.coffee.skjson.api.ConfigRecords.FEATURE_ITEM_CACHE;
+import static cz.coffee.skjson.api.ConfigRecords.ITEM_CACHE_SIZE;
+
+/**
+ * Opt-in caches of serialized and deserialized items ({@code settings.features.item-cache}).
+ * <p>
+ * Items are cached by a fingerprint (material, amount, meta hash, similarity) and jsons by their content.
+ * The cached values are never handed out, a hit returns a copy of the json / a clone of the item,
+ * which is still much cheaper than the conversion itself.
+ */
+public abstract class ItemCache {
+
+    private record Fingerprint(Material type, int amount, int metaHash, ItemStack item) {
+        static Fingerprint of(ItemStack item) {
+            return new Fingerprint(item.getType(), item.getAmount(), item.hasItemMeta() ? item.getItemMeta().hashCode() : 0, item);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Fingerprint other && type == other.type && amount == other.amount
+                    && metaHash == other.metaHash && item.isSimilar(other.item);
+        }
+
+        @Override
+        public int hashCode() {
+            return (type.hashCode() * 31 + amount) * 31 + metaHash;
+        }
+    }
+
+    private record Content(int hash, JsonObject json) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Content other && hash == other.hash && json.equals(other.json);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static volatile LruCache<Fingerprint, JsonElement> serialized = new LruCache<>(512);
+    private static volatile LruCache<Content, ItemStack> deserialized = new LruCache<>(512);
+
+    private static final LongAdder serializeHits = new LongAdder();
+    private static final LongAdder serializeMisses = new LongAdder();
+    private static final LongAdder deserializeHits = new LongAdder();
+    private static final LongAdder deserializeMisses = new LongAdder();
+
+    /**
+     * Drop all cached items and apply the configured size, called on config (re)load.
+     */
+    public static void configure() {
+        int size = ITEM_CACHE_SIZE > 0 ? ITEM_CACHE_SIZE : 512;
+        serialized = new LruCache<>(size);
+        deserialized = new LruCache<>(size);
+        serializeHits.reset();
+        serializeMisses.reset();
+        deserializeHits.reset();
+        deserializeMisses.reset();
+    }
+
+    public static boolean enabled() {
+        return FEATURE_ITEM_CACHE;
+    }
+
+    public static JsonElement toJson(final ItemStack item, final Function<ItemStack, JsonElement> serializer) {
+        if (!FEATURE_ITEM_CACHE) return serializer.apply(item);
+        Fingerprint key = Fingerprint.of(item);
+        LruCache<Fingerprint, JsonElement> cache = serialized;
+        JsonElement json = cache.get(key);
+        if (json != null) {
+            serializeHits.increment();
+            return json.deepCopy();
+        }
+        serializeMisses.increment();
+        json = serializer.apply(item);
+        if (json != null) cache.put(new Fingerprint(key.type(), key.amount(), key.metaHash(), item.clone()), json.deepCopy());
+        return json;
+    }
+
+    public static ItemStack fromJson(final JsonObject json, final Function<JsonObject, ItemStack> deserializer) {
+        if (!FEATURE_ITEM_CACHE) return deserializer.apply(json);
+        Content key = new Content(json.hashCode(), json);
+        LruCache<Content, ItemStack> cache = deserialized;
+        ItemStack item = cache.get(key);
+        if (item != null) {
+            deserializeHits.increment();
+            return item.clone();
+        }
+        deserializeMisses.increment();
+        JsonObject copy = json.deepCopy();
+        item = deserializer.apply(json);
+        if (item != null) cache.put(new Content(key.hash(), copy), item.clone());
+        return item;
+    }
+
+    /**
+     * Hit/miss counters and sizes of both caches.
+     */
+    public static @NotNull String stats() {
+        return String.format("serialize: %d hits, %d misses, %d cached | deserialize: %d hits, %d misses, %d cached",
+                serializeHits.sum(), serializeMisses.sum(), serialized.size(),
+                deserializeHits.sum(), deserializeMisses.sum(), deserialized.size());
+    }
+}
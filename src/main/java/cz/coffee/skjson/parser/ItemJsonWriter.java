@@ -0,0 +1,197 @@
+package cz.coffee.skjson.parser;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
+import com.google.gson.internal.bind.JsonTreeWriter;
+import com.google.gson.stream.JsonWriter;
+import com.shanebeestudios.skbee.api.nbt.NBTCompound;
+import com.shanebeestudios.skbee.api.nbt.NBTItem;
+import cz.coffee.skjson.api.nbts.NBTConvert;
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+
+import static cz.coffee.skjson.parser.ParserUtil.*;
+import static cz.coffee.skjson.skript.base.SimpleConverter.SERIALIZED_JSON_TYPE_KEY;
+import static org.bukkit.configuration.serialization.ConfigurationSerialization.SERIALIZED_TYPE_KEY;
+
+/**
+ * Serializer of items and inventories which writes straight to a {@link JsonWriter}.
+ * <p>
+ * The output is the same json as the one of {@link cz.coffee.skjson.skript.base.Converter#ItemStackConverter} and
+ * {@link cz.coffee.skjson.skript.base.Converter#InventoryConverter}, but no intermediate tree is built.
+ * The custom NBT of an item ({@code meta.custom}) is read by one NBT conversion of the item, only when the item has it.
+ * A tree is made by writing to a {@link JsonTreeWriter}, see {@link #toTree(ItemStack)}. When the {@link ItemCache}
+ * is enabled, cached items are written from the cache.
+ */
+public abstract class ItemJsonWriter {
+
+    public static boolean canWrite(Object source) {
+        return source instanceof ItemStack || source instanceof Inventory;
+    }
+
+    /**
+     * Write an item or an inventory.
+     *
+     * @param out    the writer
+     * @param source item stack or inventory
+     * @throws IOException when the writer fails
+     */
+    public static void write(final JsonWriter out, final Object source) throws IOException {
+        if (source instanceof ItemStack item) write(out, item);
+        else if (source instanceof Inventory inventory) write(out, inventory);
+        else throw new IllegalArgumentException("Cannot write " + source + " as an item");
+    }
+
+    public static void write(final JsonWriter out, final ItemStack item) throws IOException {
+        if (ItemCache.enabled()) {
+            GsonConverter.toJson(ItemCache.toJson(item, ItemJsonWriter::toTree), out);
+        } else {
+            writeItem(out, item);
+        }
+    }
+
+    private static void writeItem(JsonWriter out, ItemStack item) throws IOException {
+        writeSerializable(out, item, item.getItemMeta() != null ? item : null);
+    }
+
+    public static void write(final JsonWriter out, final Inventory inventory) throws IOException {
+        writeInventory(out, inventory.getClass().getName(), titleOf(inventory), inventory.getType().toString(), holderOf(inventory), inventory.getContents());
+    }
+
+    static String holderOf(Inventory inventory) {
+        return inventory.getViewers().isEmpty() ? "DEFAULT" : inventory.getViewers().get(0).getName();
+    }
+
+    static String titleOf(Inventory inventory) {
+        if (inventory.getViewers().isEmpty()) return inventory.getType().name();
+        return ((HumanEntity) inventory.getViewers().get(0)).getOpenInventory().getTitle();
+    }
+
+    /**
+     * Write the inventory from its already read state, used by {@link ObjectSnapshot} off the server thread.
+     */
+    static void writeInventory(JsonWriter out, String className, String title, String type, String holder, ItemStack[] contents) throws IOException {
+        out.beginObject();
+        out.name(SERIALIZED_JSON_TYPE_KEY).value(className);
+        out.name("title").value(title);
+        out.name("type").value(type);
+        out.name("holder").value(holder);
+        out.name("contents").beginObject();
+        for (int slot = 0; slot < contents.length; slot++) {
+            out.name("Slot " + slot);
+            if (contents[slot] == null) out.nullValue();
+            else write(out, contents[slot]);
+        }
+        out.endObject();
+        out.endObject();
+    }
+
+    /**
+     * Serialize the item to a tree, the {@link ItemCache} isn't used.
+     */
+    public static JsonElement toTree(final ItemStack item) {
+        JsonTreeWriter tree = new JsonTreeWriter();
+        try {
+            writeItem(tree, item);
+        } catch (IOException exception) {
+            throw new JsonIOException(exception);
+        }
+        return tree.get();
+    }
+
+    public static JsonElement toTree(final Inventory inventory) {
+        JsonTreeWriter tree = new JsonTreeWriter();
+        try {
+            write(tree, inventory);
+        } catch (IOException exception) {
+            throw new JsonIOException(exception);
+        }
+        return tree.get();
+    }
+
+    /**
+     * Same output as {@link cz.coffee.skjson.skript.base.Converter.BukkitConverter}.
+     *
+     * @param customOf the item whose custom NBT replaces the {@code custom} entry of its meta, null for anything else
+     */
+    private static void writeSerializable(JsonWriter out, ConfigurationSerializable source, ItemStack customOf) throws IOException {
+        out.beginObject();
+        out.name(SERIALIZED_TYPE_KEY).value(SerializableAdapterFactory.aliasOf(source.getClass()));
+        for (Map.Entry<String, Object> entry : source.serialize().entrySet()) {
+            out.name(entry.getKey());
+            if (customOf != null && entry.getKey().equals("meta") && entry.getValue() instanceof ConfigurationSerializable meta) {
+                writeMeta(out, meta, customOf);
+            } else {
+                writeValue(out, entry.getValue());
+            }
+        }
+        out.endObject();
+    }
+
+    private static void writeMeta(JsonWriter out, ConfigurationSerializable meta, ItemStack item) throws IOException {
+        out.beginObject();
+        out.name(SERIALIZED_TYPE_KEY).value(SerializableAdapterFactory.aliasOf(meta.getClass()));
+        for (Map.Entry<String, Object> entry : meta.serialize().entrySet()) {
+            out.name(entry.getKey());
+            if (entry.getKey().equals(NBT_JSON_CUSTOM_KEY)) {
+                writeCustom(out, item);
+            } else {
+                writeValue(out, entry.getValue());
+            }
+        }
+        out.endObject();
+    }
+
+    private static void writeCustom(JsonWriter out, ItemStack item) throws IOException {
+        NBTCompound custom = NBTItem.convertItemtoNBT(item).getCompound(NBT_COMPONENTS_KEY).getCompound(NBT_CUSTOM_MC_KEY);
+        out.beginObject();
+        if (custom != null) {
+            for (String key : custom.getKeys()) {
+                if (ignored.contains(key)) continue;
+                out.name(key);
+                GsonConverter.toJson(NBTConvert.parse(key, custom), out);
+            }
+        }
+        out.endObject();
+    }
+
+    private static void writeValue(JsonWriter out, Object value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+        } else if (value instanceof String string) {
+            out.value(string);
+        } else if (value instanceof Boolean bool) {
+            out.value(bool);
+        } else if (value instanceof Number number) {
+            out.value(number);
+        } else if (value instanceof ConfigurationSerializable serializable) {
+            writeSerializable(out, serializable, null);
+        } else if (value instanceof Collection<?> collection) {
+            out.beginArray();
+            for (Object element : collection) writeValue(out, element);
+            out.endArray();
+        } else if (value instanceof Map<?, ?> map && hasSimpleKeys(map)) {
+            out.beginObject();
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                out.name(String.valueOf(entry.getKey()));
+                writeValue(out, entry.getValue());
+            }
+            out.endObject();
+        } else {
+            GsonConverter.toJson(value, value.getClass(), out);
+        }
+    }
+
+    private static boolean hasSimpleKeys(Map<?, ?> map) {
+        for (Object key : map.keySet()) {
+            if (!(key instanceof String || key instanceof Number || key instanceof Boolean)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,130 @@
+package cz.coffee.skjson.parser;
+
+import ch.njol.skript.aliases.ItemData;
+import ch.njol.skript.aliases.ItemType;
+import ch.njol.skript.util.slot.Slot;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonObject;
+import com.google.gson.internal.bind.JsonTreeWriter;
+import org.bukkit.Location;
+import org.bukkit.block.Block;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static cz.coffee.skjson.skript.base.Converter.ItemStackConverter;
+import static cz.coffee.skjson.skript.base.SimpleConverter.SERIALIZED_JSON_TYPE_KEY;
+
+/**
+ * Two phase conversion of objects to json, for conversions off the server thread.
+ * <p>
+ * {@link #take(Object)} has to be called on the server thread, it only copies the state of items, inventories
+ * and blocks to plain records (cloned item stacks, block type, location...). {@link Snapshot#toJson()} then builds
+ * the json from the copy on any thread, the result is the same json as the one of {@link ParserUtil#parse(Object)}.
+ * Other objects (and objects with a converter registered through {@link ConverterRegistry}) are converted
+ * right away by {@link #take(Object)}.
+ */
+public abstract class ObjectSnapshot {
+
+    /**
+     * State of an object which can be converted to json on any thread.
+     */
+    public interface Snapshot {
+        @Nullable JsonElement toJson() throws Exception;
+    }
+
+    private record Converted(@Nullable JsonElement json) implements Snapshot {
+        @Override
+        public @Nullable JsonElement toJson() {
+            return json;
+        }
+    }
+
+    private record Item(ItemStack item) implements Snapshot {
+        @Override
+        public JsonElement toJson() throws Exception {
+            return ItemStackConverter.toJson(item);
+        }
+    }
+
+    private record Contents(String className, String title, String type, String holder, ItemStack[] items) implements Snapshot {
+        static Contents of(Inventory inventory) {
+            ItemStack[] items = inventory.getContents();
+            for (int slot = 0; slot < items.length; slot++) {
+                if (items[slot] != null) items[slot] = items[slot].clone();
+            }
+            return new Contents(inventory.getClass().getName(), ItemJsonWriter.titleOf(inventory),
+                    inventory.getType().toString(), ItemJsonWriter.holderOf(inventory), items);
+        }
+
+        @Override
+        public JsonElement toJson() {
+            JsonTreeWriter tree = new JsonTreeWriter();
+            try {
+                ItemJsonWriter.writeInventory(tree, className, title, type, holder, items);
+            } catch (IOException exception) {
+                throw new JsonIOException(exception);
+            }
+            return tree.get();
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private record BlockState(String className, String type, byte data, Location location, String world) implements Snapshot {
+        static BlockState of(Block block) {
+            return new BlockState(block.getClass().getName(), block.getType().name(), block.getData(), block.getLocation(), block.getWorld().getName());
+        }
+
+        @Override
+        public JsonElement toJson() {
+            final JsonObject jsonObject = new JsonObject();
+            jsonObject.addProperty(SERIALIZED_JSON_TYPE_KEY, className);
+            jsonObject.addProperty("type", type);
+            jsonObject.addProperty("data", data);
+            jsonObject.add("location", ParserUtil.parse(location));
+            jsonObject.addProperty("world", world);
+            return jsonObject;
+        }
+    }
+
+    /**
+     * Copy the state of the object, must be called on the server thread.
+     * An item type of more items gives one snapshot per item, as {@code json from} does.
+     *
+     * @param source the object
+     * @return the snapshots
+     */
+    public static @NotNull List<Snapshot> take(final Object source) {
+        List<Snapshot> snapshots = new ArrayList<>(1);
+        if (source == null) return snapshots;
+        if (!ConverterRegistry.isBuiltin(source.getClass())) {
+            snapshots.add(new Converted(ConverterRegistry.toJson(source)));
+        } else if (source instanceof ItemType type) {
+            if (type.getTypes().size() > 1) {
+                type.getTypes().forEach(data -> snapshots.add(new Item(data.getStack().clone())));
+            } else {
+                snapshots.add(new Item(type.getRandom().clone()));
+            }
+        } else if (source instanceof ItemStack item) {
+            snapshots.add(new Item(item.clone()));
+        } else if (source instanceof Slot slot) {
+            ItemStack item = slot.getItem();
+            snapshots.add(item == null ? new Converted(null) : new Item(item.clone()));
+        } else if (source instanceof ItemData data) {
+            snapshots.add(new Item(data.getStack().clone()));
+        } else if (source instanceof Inventory inventory) {
+            snapshots.add(Contents.of(inventory));
+        } else if (source instanceof Block block) {
+            snapshots.add(BlockState.of(block));
+        } else {
+            snapshots.add(new Converted(ConverterRegistry.toJson(source)));
+        }
+        return snapshots;
+    }
+}
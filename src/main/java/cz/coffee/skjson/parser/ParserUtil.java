@@ -1,36 +1,29 @@
 package cz.coffee.skjson.parser;
 
-import ch.njol.skript.aliases.ItemData;
-import ch.njol.skript.aliases.ItemType;
-import ch.njol.skript.util.slot.Slot;
-import ch.njol.yggdrasil.YggdrasilSerializable;
 import com.google.gson.*;
 import com.google.gson.internal.LazilyParsedNumber;
 import com.shanebeestudios.skbee.api.nbt.NBTCompound;
 import com.shanebeestudios.skbee.api.nbt.NBTItem;
 import cz.coffee.skjson.api.DynamicObjectSerializer;
 import cz.coffee.skjson.api.nbts.NBTConvert;
+import cz.coffee.skjson.json.DeepSearch;
 import cz.coffee.skjson.skript.base.Converter;
-import org.bukkit.Chunk;
+import cz.coffee.skjson.skript.base.SimpleConverter;
+import cz.coffee.skjson.utils.LruCache;
 import org.bukkit.Material;
-import org.bukkit.World;
-import org.bukkit.block.Block;
 import org.bukkit.configuration.serialization.ConfigurationSerializable;
 import org.bukkit.entity.Player;
-import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Deque;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import static cz.coffee.skjson.api.ConfigRecords.PROJECT_DEBUG;
-import static cz.coffee.skjson.skript.base.Converter.*;
 import static cz.coffee.skjson.skript.base.SimpleConverter.SERIALIZED_JSON_TYPE_KEY;
 import static cz.coffee.skjson.utils.Logger.error;
 import static org.bukkit.configuration.serialization.ConfigurationSerialization.SERIALIZED_TYPE_KEY;
@@ -46,6 +39,11 @@ public abstract class ParserUtil {
     public static final String NBT_CUSTOM_MC_KEY = "minecraft:custom_data";
     final static List<String> ignored = List.of("Enchantments", "display", "Damage", "AttributeModifiers", "CustomModelData", "DamageEquation");
 
+    private static final LruCache<String, Optional<Class<?>>> classes = new LruCache<>(256);
+    private static final LongAdder plainStrings = new LongAdder();
+    private static final LongAdder parsedStrings = new LongAdder();
+    private static final LongAdder failedStrings = new LongAdder();
+
     final static Pattern NBT_PATTERN = Pattern.compile(Pattern.quote("custom=") + "[A-Za-z0-9+/=]+");
 
 
@@ -58,6 +56,7 @@ public abstract class ParserUtil {
             .disableHtmlEscaping()
             .registerTypeHierarchyAdapter(Player.class, new DynamicObjectSerializer<Player>())
             .registerTypeHierarchyAdapter(ConfigurationSerializable.class, new Converter.BukkitConverter())
+            .registerTypeAdapterFactory(new SerializableAdapterFactory())
             .create();
 
 
@@ -69,26 +68,7 @@ public abstract class ParserUtil {
      * @return the boolean
      */
     public static boolean checkValues(@NotNull JsonElement value, @NotNull JsonElement json) {
-        boolean found = false;
-        JsonElement jsonElement;
-        Deque<JsonElement> elements = new ConcurrentLinkedDeque<>();
-        elements.add(json);
-
-        while ((jsonElement = elements.pollFirst()) != null) {
-            if (found) return true;
-            if (jsonElement instanceof JsonArray) {
-                for (JsonElement l : jsonElement.getAsJsonArray()) {
-                    if (l.equals(value)) found = true;
-                    elements.offerLast(l);
-                }
-            } else if (jsonElement instanceof JsonObject) {
-                for (Map.Entry<String, JsonElement> entry : jsonElement.getAsJsonObject().entrySet()) {
-                    if (entry.getValue().equals(value)) found = true;
-                    if (!entry.getValue().isJsonPrimitive()) elements.offerLast(entry.getValue());
-                }
-            }
-        }
-        return found;
+        return DeepSearch.hasValue(json, value);
     }
 
     public static JsonElement parseNBTCustom(ItemStack source, JsonElement i) {
@@ -129,23 +109,7 @@ public abstract class ParserUtil {
      * @return the boolean
      */
     public static boolean checkKeys(@NotNull String key, @NotNull JsonElement json) {
-        boolean found = false;
-        JsonElement value;
-        Deque<JsonElement> elements = new ConcurrentLinkedDeque<>();
-        elements.add(json);
-
-        while ((value = elements.pollFirst()) != null) {
-            if (found) return true;
-            if (value instanceof JsonArray) {
-                for (JsonElement l : value.getAsJsonArray()) elements.offerLast(l);
-            } else if (value instanceof JsonObject) {
-                for (Map.Entry<String, JsonElement> entry : value.getAsJsonObject().entrySet()) {
-                    if (entry.getKey().equals(key)) found = true;
-                    if (!entry.getValue().isJsonPrimitive()) elements.offerLast(entry.getValue());
-                }
-            }
-        }
-        return found;
+        return DeepSearch.hasKey(json, key);
     }
 
     /**
@@ -181,6 +145,49 @@ public abstract class ParserUtil {
                         || c.isAssignableFrom(Long.class));
     }
 
+    private static boolean isJsonSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    /**
+     * Cheap check whether the string can be json at all (object, array, quoted string, number or literal),
+     * plain text is then not sent to {@link JsonParser#parseString(String)}.
+     *
+     * @param string the string
+     * @return false when the string is surely not json
+     */
+    static boolean maybeJson(String string) {
+        int start = 0, end = string.length() - 1;
+        while (start <= end && isJsonSpace(string.charAt(start))) start++;
+        while (end >= start && isJsonSpace(string.charAt(end))) end--;
+        if (start > end) return true;
+        final char first = string.charAt(start), last = string.charAt(end);
+        return switch (first) {
+            case '{' -> last == '}';
+            case '[' -> last == ']';
+            case '"', '\'' -> last == first && end > start;
+            case 't', 'T', 'f', 'F', 'n', 'N' -> {
+                String literal = string.substring(start, end + 1);
+                yield literal.equalsIgnoreCase("true") || literal.equalsIgnoreCase("false") || literal.equalsIgnoreCase("null");
+            }
+            case '-', '0', '1', '2', '3', '4', '5', '6', '7', '8', '9' -> {
+                for (int i = start; i <= end; i++) {
+                    char c = string.charAt(i);
+                    if (!(c >= '0' && c <= '9') && c != '.' && c != '-' && c != '+' && c != 'e' && c != 'E') yield false;
+                }
+                yield true;
+            }
+            default -> false;
+        };
+    }
+
+    /**
+     * Counts of strings seen by {@link #defaultConverter(Object)}.
+     */
+    public static @NotNull String stringStats() {
+        return String.format("%d plain, %d parsed, %d parser fallbacks", plainStrings.sum(), parsedStrings.sum(), failedStrings.sum());
+    }
+
     /**
      * Default converter json element.
      *
@@ -193,9 +200,15 @@ public abstract class ParserUtil {
             if (object == null) return null;
             Class<?> clazz = object.getClass();
             if (clazz.equals(String.class)) {
+                if (!maybeJson((String) object)) {
+                    plainStrings.increment();
+                    return new JsonPrimitive((String) object);
+                }
                 try {
+                    parsedStrings.increment();
                     return JsonParser.parseString((String) object);
                 } catch (Exception e) {
+                    failedStrings.increment();
                     return GsonConverter.toJsonTree(object, object.getClass());
                 }
             }
@@ -258,34 +271,7 @@ public abstract class ParserUtil {
 
     private static <T> JsonElement parse(T o, Class<?> clazz) {
         if (o == null) return null;
-        if (o instanceof JsonElement json) return json;
-        if (isClassicType(o)) return defaultConverter(o);
-
-        final boolean isItem = o instanceof ItemStack || o instanceof Slot || o instanceof ItemType || o instanceof ItemData;
-
-        if (isItem) {
-            try {
-                if (clazz.equals(ItemType.class) || ItemType.class.isAssignableFrom(clazz)) {
-                    final ItemType item = (ItemType) o;
-                    return ItemStackConverter.toJson(item.getRandom());
-                } else if (clazz.equals(ItemStack.class) || ItemStack.class.isAssignableFrom(clazz)) {
-                    final ItemStack stack = (ItemStack) o;
-                    return ItemStackConverter.toJson(stack);
-                } else if (clazz.equals(Slot.class) || Slot.class.isAssignableFrom(clazz)) {
-                    final Slot slot = (Slot) o;
-                    return ItemStackConverter.toJson(slot.getItem());
-                } else if (clazz.equals(ItemData.class) || ItemData.class.isAssignableFrom(clazz)) {
-                    final ItemData data = (ItemData) o;
-                    return ItemStackConverter.toJson(data.getStack());
-                }
-            } catch (Exception ex) {
-                if (PROJECT_DEBUG) error(ex);
-            }
-        } else {
-            JsonElement e = assign(o);
-            return e;
-        }
-        return null;
+        return ConverterRegistry.toJson(o);
     }
 
     /**
@@ -297,31 +283,18 @@ public abstract class ParserUtil {
      */
     static <T> JsonElement assign(T object) {
         if (object == null) return JsonNull.INSTANCE;
-        boolean isSerializable = (object instanceof YggdrasilSerializable || object instanceof ConfigurationSerializable);
-        try {
-            if (object instanceof World w) return WorldConverter.toJson(w);
-            if (object instanceof Chunk c) ChunkConverter.toJson(c);
-            if (object instanceof Block) {
-                return BlockConverter.toJson((Block) object);
-            }
-            if (object instanceof ItemStack) {
-                return ItemStackConverter.toJson((ItemStack) object);
-            }
-            if (object instanceof Inventory) {
-                return InventoryConverter.toJson((Inventory) object);
-            }
-            if (isSerializable) {
-                return GsonConverter.toJsonTree(object);
-            }
-        } catch (Exception exception) {
-            if (PROJECT_DEBUG) exception.printStackTrace();
-            return null;
-        }
-        try {
-            return GsonConverter.toJsonTree(object);
-        } catch (Exception ex) {
-            return null;
-        }
+        return ConverterRegistry.toJson(object);
+    }
+
+    /**
+     * Whether the json is a serialized object (it has the class or the alias key), which {@link #from(JsonElement)}
+     * reads to the object.
+     */
+    public static boolean isSerializedObject(JsonElement json) {
+        if (!(json instanceof JsonObject object)) return false;
+        JsonElement type = object.get(SERIALIZED_JSON_TYPE_KEY);
+        if (type == null) type = object.get(SERIALIZED_TYPE_KEY);
+        return type != null && type.isJsonPrimitive();
     }
 
     /**
@@ -335,45 +308,37 @@ public abstract class ParserUtil {
         if (json == null || json.isJsonNull()) return null;
         else if (json.isJsonPrimitive()) return ParserUtil.jsonToType(json);
         else if (json.isJsonArray()) return (T) json;
-        final JsonElement finalJson = json.deepCopy();
-        Class<?> clazz = null;
-        String potentialClass = null;
-        if (json.getAsJsonObject().has(SERIALIZED_JSON_TYPE_KEY))
-            potentialClass = json.getAsJsonObject().get("..").getAsString();
-        else if (json.getAsJsonObject().has(SERIALIZED_TYPE_KEY))
-            potentialClass = json.getAsJsonObject().get(SERIALIZED_TYPE_KEY).getAsString();
+        final JsonObject object = json.getAsJsonObject();
+        JsonElement potentialClass = object.get(SERIALIZED_JSON_TYPE_KEY);
+        if (potentialClass == null) potentialClass = object.get(SERIALIZED_TYPE_KEY);
+        if (potentialClass == null || !potentialClass.isJsonPrimitive()) return (T) json;
+
+        final Class<?> clazz = classOf(potentialClass.getAsString());
+        if (clazz == null) return null;
         try {
-            if (potentialClass != null) clazz = Class.forName(potentialClass);
-        } catch (ClassNotFoundException notFoundException) {
-            if (PROJECT_DEBUG) error(notFoundException);
+            SimpleConverter<?> converter = ConverterRegistry.converterOf(clazz);
+            if (converter != null) return (T) converter.fromJson(converter.mutatesInput() ? object.deepCopy() : object);
+            return (T) GsonConverter.fromJson(object, clazz);
+        } catch (Exception ex) {
+            if (PROJECT_DEBUG) error(ex);
             return null;
         }
+    }
 
-        if (clazz != null) {
+    /**
+     * Resolve the class of a serialized object, classes which don't exist are remembered too.
+     *
+     * @param name the class name
+     * @return the class or null
+     */
+    private static Class<?> classOf(String name) {
+        return classes.computeIfAbsent(name, key -> {
             try {
-                if (World.class.isAssignableFrom(clazz))
-                    return (T) WorldConverter.fromJson(finalJson.getAsJsonObject());
-                if (Chunk.class.isAssignableFrom(clazz))
-                    return (T) ChunkConverter.fromJson(finalJson.getAsJsonObject());
-                else if (ItemStack.class.isAssignableFrom(clazz))
-                    return ((T) ItemStackConverter.fromJson(finalJson.getAsJsonObject()));
-                else if (Inventory.class.isAssignableFrom(clazz))
-                    return (T) InventoryConverter.fromJson(finalJson.getAsJsonObject());
-                else if (Block.class.isAssignableFrom(clazz))
-                    return (T) BlockConverter.fromJson(finalJson.getAsJsonObject());
-                else if (ConfigurationSerializable.class.isAssignableFrom(clazz))
-                    return (T) GsonConverter.fromJson(finalJson, clazz);
-                else {
-                    T o = (T) GsonConverter.fromJson(finalJson, clazz);
-                    if (o == null) return null;
-                    else return o;
-                }
-            } catch (Exception ex) {
-                if (PROJECT_DEBUG) error(ex);
-                return null;
+                return Optional.of(Class.forName(key));
+            } catch (ClassNotFoundException notFoundException) {
+                if (PROJECT_DEBUG) error(notFoundException);
+                return Optional.empty();
             }
-        } else {
-            return (T) json;
-        }
+        }).orElse(null);
     }
 }
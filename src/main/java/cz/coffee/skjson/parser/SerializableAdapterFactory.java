@@ -0,0 +1,103 @@
+package cz.coffee.skjson.parser;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.bukkit.util.BoundingBox;
+import org.bukkit.util.Vector;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.bukkit.configuration.serialization.ConfigurationSerialization.SERIALIZED_TYPE_KEY;
+
+/**
+ * Writer of {@link ConfigurationSerializable} objects straight to the {@link JsonWriter}.
+ * <p>
+ * The json is the same as the one of {@link cz.coffee.skjson.skript.base.Converter.BukkitConverter}: the alias
+ * under {@code ==} and the entries of {@code serialize()}. {@link Location}, {@link Vector} and {@link BoundingBox}
+ * are written from their getters without the map of {@code serialize()}, other classes are written from the map
+ * with the alias resolved once per class. Reading is left to the {@code BukkitConverter}.
+ */
+public class SerializableAdapterFactory implements TypeAdapterFactory {
+
+    private static final ClassValue<String> aliases = new ClassValue<>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        protected String computeValue(@NotNull Class<?> type) {
+            return ConfigurationSerialization.getAlias((Class<? extends ConfigurationSerializable>) type);
+        }
+    };
+
+    /**
+     * Same as {@link ConfigurationSerialization#getAlias(Class)}, cached per class.
+     */
+    public static String aliasOf(Class<? extends ConfigurationSerializable> type) {
+        return aliases.get(type);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        if (!ConfigurationSerializable.class.isAssignableFrom(type.getRawType())) return null;
+        final TypeAdapter<T> delegate = gson.getDelegateAdapter(this, type);
+        final TypeAdapter<Object> values = gson.getAdapter(Object.class);
+        return (TypeAdapter<T>) new TypeAdapter<ConfigurationSerializable>() {
+            @Override
+            public void write(JsonWriter out, ConfigurationSerializable value) throws IOException {
+                if (value == null) {
+                    out.nullValue();
+                    return;
+                }
+                out.beginObject();
+                out.name(SERIALIZED_TYPE_KEY).value(aliasOf(value.getClass()));
+                Class<?> clazz = value.getClass();
+                if (clazz == Location.class) {
+                    writeLocation(out, (Location) value);
+                } else if (clazz == Vector.class) {
+                    Vector vector = (Vector) value;
+                    out.name("x").value(vector.getX());
+                    out.name("y").value(vector.getY());
+                    out.name("z").value(vector.getZ());
+                } else if (clazz == BoundingBox.class) {
+                    BoundingBox box = (BoundingBox) value;
+                    out.name("minX").value(box.getMinX());
+                    out.name("minY").value(box.getMinY());
+                    out.name("minZ").value(box.getMinZ());
+                    out.name("maxX").value(box.getMaxX());
+                    out.name("maxY").value(box.getMaxY());
+                    out.name("maxZ").value(box.getMaxZ());
+                } else {
+                    for (Map.Entry<String, Object> entry : value.serialize().entrySet()) {
+                        out.name(entry.getKey());
+                        values.write(out, entry.getValue());
+                    }
+                }
+                out.endObject();
+            }
+
+            @Override
+            public ConfigurationSerializable read(JsonReader in) throws IOException {
+                return (ConfigurationSerializable) delegate.read(in);
+            }
+        };
+    }
+
+    private static void writeLocation(JsonWriter out, Location location) throws IOException {
+        World world = location.getWorld();
+        if (world != null) out.name("world").value(world.getName());
+        out.name("x").value(location.getX());
+        out.name("y").value(location.getY());
+        out.name("z").value(location.getZ());
+        out.name("yaw").value(location.getYaw());
+        out.name("pitch").value(location.getPitch());
+    }
+}
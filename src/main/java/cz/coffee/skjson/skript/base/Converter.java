@@ -4,6 +4,8 @@ import com.google.common.reflect.TypeToken;
 import com.google.gson.*;
 import cz.coffee.skjson.SkJson;
 import cz.coffee.skjson.api.nbts.NBTConvert;
+import cz.coffee.skjson.parser.ItemCache;
+import cz.coffee.skjson.parser.ItemJsonWriter;
 import cz.coffee.skjson.parser.ParserUtil;
 import net.kyori.adventure.text.Component;
 import org.bukkit.*;
@@ -16,8 +18,6 @@ import org.bukkit.configuration.serialization.ConfigurationSerializable;
 import org.bukkit.configuration.serialization.ConfigurationSerialization;
 import org.bukkit.enchantments.Enchantment;
 import org.bukkit.entity.Axolotl;
-import org.bukkit.entity.Entity;
-import org.bukkit.entity.HumanEntity;
 import org.bukkit.entity.TropicalFish;
 import org.bukkit.event.inventory.InventoryType;
 import org.bukkit.inventory.Inventory;
@@ -61,6 +61,11 @@ public abstract class Converter {
             }
             return null;
         }
+
+        @Override
+        public boolean mutatesInput() {
+            return false;
+        }
     };
     public final static SimpleConverter<ItemStack> ItemStackConverter = new SimpleConverter<ItemStack>() {
 
@@ -75,19 +80,15 @@ public abstract class Converter {
 
         @Override
         public @NotNull JsonElement toJson(ItemStack source) {
-            if (source.getItemMeta() == null) {
-                return GsonConverter.toJsonTree(source, ItemStack.class);
-            } else {
-                JsonObject o = new JsonObject();
-                o.addProperty(SERIALIZED_JSON_TYPE_KEY, source.getClass().getName());
-                JsonElement i = GsonConverter.toJsonTree(source, ItemStack.class);
-                return ParserUtil.parseNBTCustom(source, i);
-            }
+            return ItemCache.toJson(source, ItemJsonWriter::toTree);
         }
 
         @Override
         public ItemStack fromJson(JsonObject json) {
+            return ItemCache.fromJson(json, this::decode);
+        }
 
+        private ItemStack decode(JsonObject json) {
             if (json.has("meta")) {
                 JsonObject metaJson = json.getAsJsonObject("meta");
                 JsonElement customTags = metaJson.remove("custom");
@@ -130,6 +131,11 @@ public abstract class Converter {
             }
             return null;
         }
+
+        @Override
+        public boolean mutatesInput() {
+            return false;
+        }
     };
     public final static SimpleConverter<ItemMeta> ItemMetaConverter = new SimpleConverter<ItemMeta>() {
 
@@ -486,36 +492,17 @@ public abstract class Converter {
             }
             return null;
         }
+
+        @Override
+        public boolean mutatesInput() {
+            return false;
+        }
     };
     public final static SimpleConverter<Inventory> InventoryConverter = new SimpleConverter<Inventory>() {
 
         @Override
-        public @NotNull JsonElement toJson(Inventory source) throws Exception {
-            final String sourceType = source.getType().toString();
-            String invJsonTitle;
-            String stringifyInventoryHolder;
-
-            if (source.getViewers().isEmpty()) {
-                stringifyInventoryHolder = "DEFAULT";
-                invJsonTitle = source.getType().name();
-            } else {
-                Entity viewer = source.getViewers().get(0);
-                stringifyInventoryHolder = viewer.getName();
-                invJsonTitle = ((HumanEntity) viewer).getOpenInventory().getTitle();
-            }
-
-            final JsonObject outputJson = new JsonObject();
-            final JsonObject jsonInventory = new JsonObject();
-            outputJson.addProperty(SERIALIZED_JSON_TYPE_KEY, source.getClass().getName());
-            for (ItemStack item : source.getContents()) {
-                String slot = "Slot " + jsonInventory.size();
-                jsonInventory.add(slot, (item != null ? ItemStackConverter.toJson(item) : JsonNull.INSTANCE));
-            }
-            outputJson.addProperty("title", invJsonTitle);
-            outputJson.addProperty("type", sourceType);
-            outputJson.addProperty("holder", stringifyInventoryHolder);
-            outputJson.add("contents", jsonInventory);
-            return outputJson;
+        public @NotNull JsonElement toJson(Inventory source) {
+            return ItemJsonWriter.toTree(source);
         }
 
         @Override
@@ -0,0 +1,130 @@
+package cz.coffee.skjson.skript.base;
+
+import ch.njol.skript.classes.Changer;
+import ch.njol.skript.config.Node;
+import ch.njol.skript.doc.Description;
+import ch.njol.skript.doc.Examples;
+import ch.njol.skript.doc.Name;
+import ch.njol.skript.doc.Since;
+import ch.njol.skript.lang.Effect;
+import ch.njol.skript.lang.Expression;
+import ch.njol.skript.lang.SkriptParser;
+import ch.njol.skript.lang.TriggerItem;
+import ch.njol.skript.lang.Variable;
+import ch.njol.skript.variables.Variables;
+import ch.njol.util.Kleenean;
+import com.google.gson.JsonElement;
+import cz.coffee.skjson.SkJson;
+import cz.coffee.skjson.SkJsonElements;
+import cz.coffee.skjson.api.SkriptReflection;
+import cz.coffee.skjson.parser.ObjectSnapshot;
+import cz.coffee.skjson.parser.ObjectSnapshot.Snapshot;
+import org.bukkit.Bukkit;
+import org.bukkit.event.Event;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static ch.njol.skript.util.LiteralUtils.canInitSafely;
+import static ch.njol.skript.util.LiteralUtils.defendExpression;
+import static cz.coffee.skjson.api.ConfigRecords.PROJECT_DEBUG;
+import static cz.coffee.skjson.utils.Logger.error;
+import static cz.coffee.skjson.utils.Logger.simpleError;
+
+@Name("Async json from objects")
+@Description({
+        "Same as `json from %objects%`, but the json is built off the server thread.",
+        "Items, inventories and blocks are copied on the server thread, the json is then built from the copies",
+        "on a worker thread and stored to the variable, then the code continues (same as after a delay)."
+})
+@Examples({
+        "command backup:",
+        "\ttrigger:",
+        "\t\tasync convert player's inventory to json and store it in {_json}",
+        "\t\tsave json {_json} to json file \"plugins/backups/%player%.json\""
+})
+@Since("4.1.0")
+public class EffAsyncJson extends Effect {
+
+    static {
+        SkJsonElements.registerEffect(EffAsyncJson.class,
+                "async[hronously] convert %objects% to json and store (it|them) in %objects%"
+        );
+    }
+
+    private Expression<?> input;
+    private Variable<?> target;
+    private Node node;
+
+    @Override
+    protected void execute(@NotNull Event event) {
+        List<Snapshot> snapshots = new ArrayList<>();
+        for (Object value : input.getAll(event)) {
+            try {
+                snapshots.addAll(ObjectSnapshot.take(value));
+            } catch (Exception ex) {
+                if (PROJECT_DEBUG) error(ex, null, node);
+            }
+        }
+        var vars = Variables.copyLocalVariables(event);
+        CompletableFuture.supplyAsync(() -> build(snapshots))
+                .whenComplete((output, err) -> {
+                    if (err != null) error(err, null, node);
+                    Bukkit.getScheduler().runTask(SkJson.getInstance(), () -> {
+                        Variables.setLocalVariables(event, vars);
+                        if (output != null && output.length > 0) {
+                            target.change(event, target.isSingle() ? new Object[]{output[0]} : output, Changer.ChangeMode.SET);
+                        }
+                        if (getNext() != null) TriggerItem.walk(getNext(), event);
+                        Variables.removeLocals(event);
+                    });
+                });
+    }
+
+    private JsonElement[] build(List<Snapshot> snapshots) {
+        List<JsonElement> output = new ArrayList<>(snapshots.size());
+        for (Snapshot snapshot : snapshots) {
+            try {
+                JsonElement json = snapshot.toJson();
+                if (json != null) output.add(json);
+            } catch (Exception ex) {
+                if (PROJECT_DEBUG) error(ex, null, node);
+            }
+        }
+        return output.toArray(JsonElement[]::new);
+    }
+
+    @Override
+    protected TriggerItem walk(@NotNull Event e) {
+        debug(e, true);
+        SkriptReflection.delay(e);
+        execute(e);
+        return null;
+    }
+
+    @Override
+    public @NotNull String toString(@Nullable Event event, boolean debug) {
+        return "async convert " + input.toString(event, debug) + " to json and store them in " + target.toString(event, debug);
+    }
+
+    @Override
+    public boolean init(Expression<?> @NotNull [] expressions, int matchedPattern, @NotNull Kleenean isDelayed, SkriptParser.@NotNull ParseResult parseResult) {
+        input = defendExpression(expressions[0]);
+        // errors are logged at runtime (also on worker threads), where the parser has no node
+        node = getParser().getNode();
+        if (!(expressions[1] instanceof Variable<?> variable)) {
+            simpleError("The json can be stored only to a variable", getParser().getNode());
+            return false;
+        }
+        if (variable.isSingle() && !input.isSingle()) {
+            simpleError("Multiple jsons can be stored only to a list variable", getParser().getNode());
+            return false;
+        }
+        target = variable;
+        getParser().setHasDelayBefore(Kleenean.TRUE);
+        return canInitSafely(input);
+    }
+}
@@ -0,0 +1,231 @@
+package cz.coffee.skjson.skript.base;
+
+import ch.njol.skript.Skript;
+import ch.njol.skript.doc.Description;
+import ch.njol.skript.doc.Examples;
+import ch.njol.skript.doc.Name;
+import ch.njol.skript.doc.Since;
+import ch.njol.skript.lang.Expression;
+import ch.njol.skript.lang.ExpressionType;
+import ch.njol.skript.lang.Literal;
+import ch.njol.skript.lang.SkriptParser.ParseResult;
+import ch.njol.skript.lang.util.SimpleExpression;
+import ch.njol.util.Kleenean;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import cz.coffee.skjson.SkJsonElements;
+import cz.coffee.skjson.json.JsonParserException;
+import cz.coffee.skjson.json.JsonQuery;
+import org.bukkit.event.Event;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+
+import static ch.njol.skript.util.LiteralUtils.canInitSafely;
+import static ch.njol.skript.util.LiteralUtils.defendExpression;
+import static cz.coffee.skjson.utils.Logger.simpleError;
+
+/**
+ * Aggregations of jsons computed in Java, in one pass of {@link JsonQuery}.
+ */
+public abstract class JsonAggregate {
+
+    /**
+     * The query of the expression. Compiled queries are cached per path delimiter by {@link JsonQuery#compile},
+     * so a literal query follows a delimiter changed by {@code /skjson reload}.
+     */
+    private static @Nullable JsonQuery query(@Nullable String literal, @Nullable Expression<String> expression, Event e) {
+        String input = literal != null ? literal : expression == null ? null : expression.getSingle(e);
+        if (input == null) return null;
+        try {
+            return JsonQuery.compile(input);
+        } catch (JsonParserException ex) {
+            simpleError(ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * The query of a literal checked at parse time, null when the query isn't a literal.
+     */
+    private static @Nullable String compileLiteral(@Nullable Expression<String> expression) throws JsonParserException {
+        if (expression instanceof Literal<String> literal && literal.getSingle() != null) {
+            JsonQuery.compile(literal.getSingle());
+            return literal.getSingle();
+        }
+        return null;
+    }
+
+    @Name("Json aggregation")
+    @Description({
+            "Sum, average, minimum, maximum or count of the values matched by a json query (see Json query).",
+            "Only numbers are summed, averaged and compared, count counts all matched values.",
+            "The sum of integers is exact, average/min/max of no numbers is none."
+    })
+    @Examples({
+            "on script load:",
+            "\tset {_json} to json from \"{players: [{name: 'a', coins: 10}, {name: 'b', coins: 25}]}\"",
+            "\tsend sum of json values \"players[*]::coins\" in {_json} # 35",
+            "\tsend average of json values \"players[*].coins\" in {_json} # 17.5",
+            "\tsend max of json values \"$..coins\" in {_json} # 25"
+    })
+    @Since("4.1.0")
+    public static class Aggregate extends SimpleExpression<Number> {
+
+        static {
+            SkJsonElements.registerExpression(Aggregate.class, Number.class, ExpressionType.COMBINED,
+                    "(0:sum|1:(average|avg)|2:min[imum]|3:max[imum]|4:count) of json values %string% in %json%"
+            );
+        }
+
+        private int mode;
+        private Expression<String> queryExpression;
+        private Expression<JsonElement> jsonExpression;
+        private String literalQuery;
+
+        @Override
+        protected @Nullable Number @NotNull [] get(@NotNull Event e) {
+            JsonElement json = jsonExpression.getSingle(e);
+            JsonQuery query = query(literalQuery, queryExpression, e);
+            if (json == null || query == null) return new Number[0];
+            JsonQuery.Stats stats = query.stats(json);
+            if (mode == 0) return new Number[]{stats.sum()};
+            if (mode == 4) return new Number[]{stats.count()};
+            if (stats.numbers() == 0) return new Number[0];
+            return new Number[]{switch (mode) {
+                case 1 -> stats.average();
+                case 2 -> stats.min();
+                default -> stats.max();
+            }};
+        }
+
+        @Override
+        public boolean isSingle() {
+            return true;
+        }
+
+        @Override
+        public @NotNull Class<? extends Number> getReturnType() {
+            return Number.class;
+        }
+
+        @Override
+        public @NotNull String toString(@Nullable Event e, boolean debug) {
+            String name = switch (mode) {
+                case 0 -> "sum";
+                case 1 -> "average";
+                case 2 -> "min";
+                case 3 -> "max";
+                default -> "count";
+            };
+            return name + " of json values " + queryExpression.toString(e, debug) + " in " + jsonExpression.toString(e, debug);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean init(Expression<?> @NotNull [] exprs, int matchedPattern, @NotNull Kleenean isDelayed, @NotNull ParseResult parseResult) {
+            mode = parseResult.mark;
+            queryExpression = (Expression<String>) exprs[0];
+            jsonExpression = defendExpression(exprs[1]);
+            try {
+                literalQuery = compileLiteral(queryExpression);
+            } catch (JsonParserException ex) {
+                Skript.error(ex.getMessage());
+                return false;
+            }
+            return canInitSafely(jsonExpression);
+        }
+    }
+
+    @Name("Group json")
+    @Description({
+            "Groups the values of a json array (or object) by the value of the given key (or query) into a json object,",
+            "the keys of the object are the values of the key and its values are arrays of the grouped values.",
+            "With `json values %string% in`, the values matched by the query are grouped.",
+            "Values without the key are skipped."
+    })
+    @Examples({
+            "on script load:",
+            "\tset {_json} to json from \"[{name: 'a', team: 'red'}, {name: 'b', team: 'blue'}, {name: 'c', team: 'red'}]\"",
+            "\tsend group {_json} by \"team\" # {red: [{name: 'a', ...}, {name: 'c', ...}], blue: [{name: 'b', ...}]}",
+            "\tsend group json values \"players[*]\" in {_data} by \"team\""
+    })
+    @Since("4.1.0")
+    public static class Group extends SimpleExpression<JsonElement> {
+
+        static {
+            SkJsonElements.registerExpression(Group.class, JsonElement.class, ExpressionType.COMBINED,
+                    "group [json values %-string% in] %json% by %string%"
+            );
+        }
+
+        private Expression<String> queryExpression;
+        private Expression<JsonElement> jsonExpression;
+        private Expression<String> keyExpression;
+        private String literalQuery, literalKey;
+
+        @Override
+        protected @Nullable JsonElement @NotNull [] get(@NotNull Event e) {
+            JsonElement json = jsonExpression.getSingle(e);
+            JsonQuery key = query(literalKey, keyExpression, e);
+            if (json == null || key == null) return new JsonElement[0];
+            JsonObject groups = new JsonObject();
+            JsonQuery.Visitor grouping = value -> {
+                JsonElement found = key.first(value);
+                if (found == null || found.isJsonNull()) return true;
+                String name = found.isJsonPrimitive() ? found.getAsString() : found.toString();
+                JsonElement group = groups.get(name);
+                if (group == null) {
+                    group = new JsonArray();
+                    groups.add(name, group);
+                }
+                ((JsonArray) group).add(value.deepCopy());
+                return true;
+            };
+            if (queryExpression != null) {
+                JsonQuery query = query(literalQuery, queryExpression, e);
+                if (query == null) return new JsonElement[0];
+                query.select(json, grouping);
+            } else if (json instanceof JsonArray array) {
+                for (JsonElement value : array) grouping.visit(value);
+            } else if (json instanceof JsonObject object) {
+                for (Map.Entry<String, JsonElement> entry : object.entrySet()) grouping.visit(entry.getValue());
+            }
+            return new JsonElement[]{groups};
+        }
+
+        @Override
+        public boolean isSingle() {
+            return true;
+        }
+
+        @Override
+        public @NotNull Class<? extends JsonElement> getReturnType() {
+            return JsonElement.class;
+        }
+
+        @Override
+        public @NotNull String toString(@Nullable Event e, boolean debug) {
+            return "group " + (queryExpression == null ? "" : "json values " + queryExpression.toString(e, debug) + " in ")
+                    + jsonExpression.toString(e, debug) + " by " + keyExpression.toString(e, debug);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean init(Expression<?> @NotNull [] exprs, int matchedPattern, @NotNull Kleenean isDelayed, @NotNull ParseResult parseResult) {
+            queryExpression = (Expression<String>) exprs[0];
+            jsonExpression = defendExpression(exprs[1]);
+            keyExpression = (Expression<String>) exprs[2];
+            try {
+                literalQuery = compileLiteral(queryExpression);
+                literalKey = compileLiteral(keyExpression);
+            } catch (JsonParserException ex) {
+                Skript.error(ex.getMessage());
+                return false;
+            }
+            return canInitSafely(jsonExpression);
+        }
+    }
+}
@@ -17,11 +17,20 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
 import cz.coffee.skjson.SkJsonElements;
+import cz.coffee.skjson.SkJson;
+import cz.coffee.skjson.api.BulkVariableWriter;
+import cz.coffee.skjson.api.SkriptReflection;
+import cz.coffee.skjson.api.VariableJsonView;
 import cz.coffee.skjson.api.FileHandler;
 import cz.coffee.skjson.json.JsonParser;
+import cz.coffee.skjson.json.JsonParserException;
+import cz.coffee.skjson.json.JsonQuery;
+import cz.coffee.skjson.json.ListIndex;
 import cz.coffee.skjson.parser.ParserUtil;
+import cz.coffee.skjson.utils.CompiledPath;
+import cz.coffee.skjson.utils.LiteralPath;
 import cz.coffee.skjson.utils.PatternUtil;
-import cz.coffee.skjson.utils.Util;
+import org.bukkit.Bukkit;
 import org.bukkit.event.Event;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
@@ -38,11 +47,9 @@ import java.util.regex.Pattern;
 import static ch.njol.skript.lang.Variable.SEPARATOR;
 import static ch.njol.skript.util.LiteralUtils.canInitSafely;
 import static ch.njol.skript.util.LiteralUtils.defendExpression;
-import static ch.njol.skript.variables.Variables.getVariable;
 import static cz.coffee.skjson.api.ConfigRecords.*;
 import static cz.coffee.skjson.parser.ParserUtil.*;
 import static cz.coffee.skjson.utils.Logger.*;
-import static cz.coffee.skjson.utils.PatternUtil.convertStringToKeys;
 import static cz.coffee.skjson.utils.Util.parseNumber;
 
 @SuppressWarnings({"Unchecked", "unused"})
@@ -142,40 +149,35 @@ public abstract class JsonBase {
             );
         }
 
+        /**
+         * Key (or index) and value of the current element of a looped json.
+         */
+        public record Pair(String key, Object value) {
+        }
+
         private boolean isKey;
         private String name;
         private SecLoop loop;
+        private JsonSpreadLoopSection spread;
         private boolean isCanceled = false;
 
 
         @Override
-        @SuppressWarnings("unchecked")
         protected @Nullable Object @NotNull [] get(@NotNull Event e) {
             if (isCanceled) return new Object[0];
-
-            WeakHashMap<String, Object> outputMap;
-            try {
-                outputMap = (WeakHashMap<String, Object>) loop.getCurrent(e);
-            } catch (ClassCastException exception) {
-                if (PROJECT_DEBUG) error(exception);
-                return new Object[0];
-            }
-
-            if (outputMap == null) return new Object[0];
-
-            for (Map.Entry<String, Object> entry : outputMap.entrySet()) {
-                if (isKey) return new String[]{entry.getKey()};
-                Object[] first = (Object[]) Array.newInstance(getReturnType(), 1);
-                if (entry.getValue() instanceof JsonElement element) {
-                    Object assignedValue = parse(element);
-                    if (assignedValue == null) assignedValue = jsonToType(element);
-                    first[0] = assignedValue;
-                } else {
-                    first[0] = entry.getValue();
-                }
-                return first;
+            Object current = loop != null ? loop.getCurrent(e) : spread.getCurrent(e);
+            if (!(current instanceof Pair pair)) return new Object[0];
+
+            if (isKey) return new String[]{pair.key()};
+            Object[] first = (Object[]) Array.newInstance(getReturnType(), 1);
+            if (pair.value() instanceof JsonElement element) {
+                Object assignedValue = parse(element);
+                if (assignedValue == null) assignedValue = jsonToType(element);
+                first[0] = assignedValue;
+            } else {
+                first[0] = pair.value();
             }
-            return new Object[0];
+            return first;
         }
 
         @Override
@@ -192,7 +194,7 @@ public abstract class JsonBase {
         @Override
         public @NotNull String toString(@Nullable Event e, boolean debug) {
             if (e == null) return name;
-            return Classes.getDebugMessage(loop.getCurrent(e));
+            return Classes.getDebugMessage(loop != null ? loop.getCurrent(e) : spread.getCurrent(e));
         }
 
         @Override
@@ -211,27 +213,26 @@ public abstract class JsonBase {
                 s = split[1];
                 i = parseNumber(group);
             }
-            Class<?> inputClass = Classes.getClassFromUserInput(s);
             name = s;
             int j = 1;
 
-            SecLoop loop = null;
-            for (SecLoop l : getParser().getCurrentSections(SecLoop.class)) {
-                if ((inputClass != null && inputClass.isAssignableFrom(l.getLoopedExpression().getReturnType())) || l.getLoopedExpression().isLoopOf("value")) {
-                    if (j < i) {
-                        j++;
-                        continue;
-                    }
-                    if (loop != null) {
-                        isCanceled = true;
-                        break;
-                    }
-                    loop = l;
-                    if (j == i) break;
+            // loops of json values of both kinds, from the outermost, json-value-N is the N-th of them
+            TriggerSection found = null;
+            for (TriggerSection section : getParser().getCurrentSections()) {
+                if (!isJsonLoop(section)) continue;
+                if (j < i) {
+                    j++;
+                    continue;
+                }
+                if (found != null) {
+                    isCanceled = true;
+                    break;
                 }
+                found = section;
+                if (j == i) break;
             }
 
-            if (loop == null) {
+            if (found == null) {
                 Skript.error("There's no loop that matches json-" + s + "'", ErrorQuality.SEMANTIC_ERROR);
                 return false;
             }
@@ -239,10 +240,19 @@ public abstract class JsonBase {
                 Skript.error("There are multiple loops that match json-" + s + ". Use json-" + s + "-1/2/3/etc. to specify witch loop's value you want.", ErrorQuality.SEMANTIC_ERROR);
                 return false;
             }
-            this.loop = loop;
+            if (found instanceof SecLoop secLoop) this.loop = secLoop;
+            else this.spread = (JsonSpreadLoopSection) found;
             return true;
         }
 
+        /**
+         * Whether the section loops json values, only their current values are {@link Pair}s.
+         */
+        private static boolean isJsonLoop(TriggerSection section) {
+            if (section instanceof JsonSpreadLoopSection) return true;
+            return section instanceof SecLoop secLoop && secLoop.getLoopedExpression().getSource() instanceof Elements;
+        }
+
         public boolean isLoopOf(@NotNull String s) {
             return false;
         }
@@ -272,6 +282,7 @@ public abstract class JsonBase {
         private boolean isValues;
         private Expression<JsonElement> jsonInput;
         private Expression<String> pathInput;
+        private LiteralPath literalPath;
         private boolean needConvert;
 
         public static LinkedList<Object> getNestedElements(JsonElement current) {
@@ -307,8 +318,7 @@ public abstract class JsonBase {
                     error(ex, null, getParser().getNode());
                 }
                 if (json == null) return new Object[0];
-                String keys = !emptyPath ? pathInput.getSingle(e) : null;
-                Deque<PatternUtil.keyStruct> wrappedKeys = convertStringToKeys(keys);
+                CompiledPath wrappedKeys = literalPath != null ? literalPath.get() : PatternUtil.compile(!emptyPath ? pathInput.getSingle(e) : null);
                 if (wrappedKeys.isEmpty() && (!emptyPath || !isValues)) return new Object[0];
                 if (isValues) {
                     if (emptyPath) {
@@ -378,6 +388,7 @@ public abstract class JsonBase {
                 jsonInput = defendExpression(exprs[1]);
                 pathInput = (Expression<String>) exprs[0];
             }
+            literalPath = PatternUtil.compileLiteral(pathInput, false);
             return canInitSafely(jsonInput);
         }
 
@@ -396,41 +407,49 @@ public abstract class JsonBase {
             else {
                 finalObject = (JsonElement) object;
             }
-            return new Iterator<>() {
-                int index = 0;
-
-                @Override
-                public boolean hasNext() {
-                    if (finalObject.isJsonArray()) {
-                        JsonArray array = finalObject.getAsJsonArray();
-                        return index < array.size();
-                    } else if (finalObject.isJsonObject()) {
-                        JsonObject json = finalObject.getAsJsonObject();
-                        return index < json.keySet().size();
+            return pairs(finalObject);
+        }
+
+        /**
+         * Iterator of {@link LoopExpression.Pair}s of the json elements, the elements are taken once,
+         * so changes of the json in the loop don't affect the loop.
+         */
+        public static @NotNull Iterator<Object> pairs(@NotNull JsonElement source) {
+            if (source instanceof JsonArray array) {
+                final List<JsonElement> values = new ArrayList<>(array.size());
+                array.forEach(values::add);
+                return new Iterator<>() {
+                    int index = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < values.size();
                     }
-                    return false;
-                }
 
-                @Override
-                public Object next() {
-                    if (finalObject.isJsonArray()) {
-                        final WeakHashMap<String, Object> weak = new WeakHashMap<>();
-                        JsonArray array = finalObject.getAsJsonArray();
-                        weak.put(String.valueOf(index), jsonToType(array.get(index)));
-                        index++;
-                        return weak;
-                    } else if (finalObject.isJsonObject()) {
-                        JsonObject json = finalObject.getAsJsonObject();
-                        Set<String> keys = json.keySet();
-                        final WeakHashMap<String, Object> weak = new WeakHashMap<>();
-                        String declaredKey = keys.toArray(new String[0])[index];
-                        weak.put(declaredKey, jsonToType(json.get(declaredKey)));
+                    @Override
+                    public Object next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        LoopExpression.Pair pair = new LoopExpression.Pair(String.valueOf(index), jsonToType(values.get(index)));
                         index++;
-                        return weak;
+                        return pair;
                     }
-                    return null;
-                }
-            };
+                };
+            } else if (source instanceof JsonObject json) {
+                final Iterator<Map.Entry<String, JsonElement>> entries = new ArrayList<>(json.entrySet()).iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return entries.hasNext();
+                    }
+
+                    @Override
+                    public Object next() {
+                        Map.Entry<String, JsonElement> entry = entries.next();
+                        return new LoopExpression.Pair(entry.getKey(), jsonToType(entry.getValue()));
+                    }
+                };
+            }
+            return Collections.emptyIterator();
         }
     }
 
@@ -461,6 +480,7 @@ public abstract class JsonBase {
         }
 
         private Expression<Integer> intExpression;
+        private Integer literalIndex;
         private Expression<JsonElement> jsonInput;
         private Integer tag;
 
@@ -476,7 +496,9 @@ public abstract class JsonBase {
                 case 3 -> i = 2;
                 case 4 -> i = lastElementConst;
                 case 5 -> {
-                    if (intExpression != null) {
+                    if (literalIndex != null) {
+                        i = literalIndex;
+                    } else if (intExpression != null) {
                         int number = intExpression.getSingle(e);
                         i = number - 1;
                     }
@@ -548,6 +570,9 @@ public abstract class JsonBase {
         public boolean init(Expression<?>[] exprs, int matchedPattern, @NotNull Kleenean isDelayed, ParseResult parseResult) {
             tag = parseResult.mark;
             intExpression = (Expression<Integer>) exprs[0];
+            if (intExpression instanceof Literal<Integer> literal && literal.getSingle() != null) {
+                literalIndex = literal.getSingle() - 1;
+            }
             jsonInput = defendExpression(exprs[1]);
             return canInitSafely(jsonInput);
         }
@@ -573,16 +598,17 @@ public abstract class JsonBase {
         private Expression<Integer> integerExpression;
         private Expression<JsonElement> jsonElementExpression;
         private Expression<String> pathExpression;
+        private LiteralPath literalPath;
         private Expression<?> inputExpression;
 
         @Override
         protected @Nullable Integer @NotNull [] get(@NotNull Event e) {
             Object input = inputExpression.getSingle(e);
             JsonElement json = jsonElementExpression.getSingle(e);
-            String inputPath = pathExpression.getSingle(e);
 
             if (input == null || json == null) return new Integer[0];
-            Integer i = JsonParser.search(json).indexOfListValue(convertStringToKeys(inputPath), parse(input));
+            CompiledPath path = literalPath != null ? literalPath.get() : PatternUtil.compile(pathExpression == null ? null : pathExpression.getSingle(e));
+            Integer i = JsonParser.search(json).indexOfListValue(path, parse(input));
             if (i != null) return new Integer[]{i};
             return new Integer[0];
         }
@@ -608,19 +634,82 @@ public abstract class JsonBase {
         public boolean init(Expression<?> @NotNull [] exprs, int matchedPattern, @NotNull Kleenean isDelayed, @NotNull ParseResult parseResult) {
             inputExpression = defendExpression(exprs[0]);
             pathExpression = (Expression<String>) exprs[1];
+            literalPath = PatternUtil.compileLiteral(pathExpression, false);
             jsonElementExpression = (Expression<JsonElement>) exprs[2];
             return canInitSafely(inputExpression);
         }
     }
 
+    @Name("Index values of json list")
+    @Description({
+            "Builds a value index of the json list, so `index of value`, `remove value` and `has value` don't compare the whole list.",
+            "Useful for big lists which are checked very often (whitelists, ban lists).",
+            "The index follows all changes made by skJson, it's kept until it's dropped (`drop value index of json list ...`) or the json is gone."
+    })
+    @Examples({
+            "on script load:",
+            "\tset {-banned} to json from file \"plugins/bans.json\"",
+            "\tindex values of json list \"players\" of {-banned}",
+            "on join:",
+            "\tif {-banned} has value (player's uuid):",
+            "\t\tkick player"
+    })
+    @Since("4.1.0")
+    public static class IndexJsonList extends Effect {
+
+        static {
+            SkJsonElements.registerEffect(IndexJsonList.class,
+                    "index values of [json] list [%-string%] of [json] %json%",
+                    "drop [the] value index of [json] list [%-string%] of [json] %json%"
+            );
+        }
+
+        private boolean drop;
+        private Expression<String> pathExpression;
+        private LiteralPath literalPath;
+        private Expression<JsonElement> jsonElementExpression;
+
+        @Override
+        protected void execute(@NotNull Event e) {
+            JsonElement json = jsonElementExpression.getSingle(e);
+            if (json == null) return;
+            CompiledPath path = literalPath != null ? literalPath.get() : PatternUtil.compile(pathExpression == null ? null : pathExpression.getSingle(e));
+            JsonElement list = path.isEmpty() ? json : JsonParser.search(json).key(path);
+            if (!(list instanceof JsonArray array)) return;
+            if (drop) {
+                ListIndex.drop(array);
+            } else {
+                ListIndex.build(array);
+            }
+        }
+
+        @Override
+        public @NotNull String toString(@Nullable Event e, boolean debug) {
+            return (drop ? "drop value index of json list " : "index values of json list ") + (pathExpression == null ? "" : pathExpression.toString(e, debug) + " ") + "of " + jsonElementExpression.toString(e, debug);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean init(Expression<?> @NotNull [] exprs, int matchedPattern, @NotNull Kleenean isDelayed, @NotNull ParseResult parseResult) {
+            drop = matchedPattern == 1;
+            pathExpression = (Expression<String>) exprs[0];
+            literalPath = PatternUtil.compileLiteral(pathExpression, false);
+            jsonElementExpression = (Expression<JsonElement>) exprs[1];
+            return true;
+        }
+    }
+
     @Name("Json to Skript variable list")
     @Description("Its allow convert Json to variable skript list")
     @Examples({
             "on script load:",
             "\tset {_json} to json from file \"plugins/skript/#.json\"",
-            "\tmap {_json} to {_json::*}"
+            "\tmap {_json} to {_json::*}",
+            "",
+            "\t# the variables are prepared off the server thread, the code continues when they are set",
+            "\tasync map {_json} to {_json::*}"
     })
-    @Since("1.9, 2.9 - Support mapping json from functions")
+    @Since("1.9, 2.9 - Support mapping json from functions, 4.1.0 - async mapping continues after the variables are set")
     public static class MapJson extends Effect {
 
         static {
@@ -631,77 +720,107 @@ public abstract class JsonBase {
         private VariableString variableString;
         private boolean isLocal;
         private boolean async;
+        private Node node;
 
-        private static void toList(@NotNull String name, JsonElement inputJson, boolean isLocal, Event event) {
-            if (inputJson.isJsonPrimitive()) {
-                primitive(name, inputJson.getAsJsonPrimitive(), isLocal, event);
-            } else if (inputJson.isJsonObject() || inputJson.isJsonArray()) {
-                if (inputJson instanceof JsonArray list) {
-                    for (int index = 0; index < list.size(); index++) {
-                        JsonElement element = list.get(index);
-                        Object parsed = from(element);
-                        if (parsed == null) {
-                            if (element.isJsonPrimitive()) {
-                                primitive(name + (index + 1), element.getAsJsonPrimitive(), isLocal, event);
-                            } else {
-                                toList(name + (index + 1) + SEPARATOR, element, isLocal, event);
-                            }
-                        } else {
-                            if (PROJECT_DEBUG && LOGGING_LEVEL > 2)
-                                info("List-Element &b %s &fParsed? -> &a %s", element, parsed);
-                            parsed(name + (index + 1), parsed, isLocal, event);
-                        }
+        private static void toList(BulkVariableWriter.Node node, JsonElement inputJson, boolean async) {
+            if (inputJson instanceof JsonArray list) {
+                for (int index = 0; index < list.size(); index++) {
+                    element(node, String.valueOf(index + 1), list.get(index), async);
+                }
+            } else if (inputJson instanceof JsonObject map) {
+                for (Map.Entry<String, JsonElement> entry : map.entrySet()) {
+                    try {
+                        if (entry.getKey() != null) element(node, entry.getKey(), entry.getValue(), async);
+                    } catch (Exception e) {
+                        error(e);
                     }
-                } else if (inputJson instanceof JsonObject map) {
-                    map.keySet().stream().filter(Objects::nonNull).forEach(key -> {
-                        try {
-                            JsonElement element = map.get(key);
-                            Object parsed = from(element);
-                            // parsed means that return a parsed value from BUKKIT/SKRIPT Objects
-                            if (parsed == null) {
-                                if (element.isJsonPrimitive()) {
-                                    primitive(name + key, element.getAsJsonPrimitive(), isLocal, event);
-                                } else {
-                                    toList(name + key + SEPARATOR, element, isLocal, event);
-                                }
-                            } else {
-                                parsed(name + key, parsed, isLocal, event);
-                            }
-                        } catch (Exception e) {
-                            error(e);
-                        }
-                    });
                 }
             }
         }
 
-        static <T> void parsed(String name, T object, boolean isLocal, Event event) {
-            if (PROJECT_DEBUG && LOGGING_LEVEL > 2)  info("PARSED -> (Variable) %s => &e%s", name, object);
-            Variables.setVariable(name, object, event, isLocal);
+        private static void element(BulkVariableWriter.Node node, String key, JsonElement element, boolean async) {
+            if (async && isSerializedObject(element)) {
+                // items, blocks... may be created only on the server thread, unknown objects are mapped as lists
+                node.defer(key, () -> from(element), child -> toList(child, element, false));
+                return;
+            }
+            Object parsed = from(element);
+            // parsed means that return a parsed value from BUKKIT/SKRIPT Objects
+            if (parsed == null) {
+                if (element.isJsonPrimitive()) {
+                    primitive(node, key, element.getAsJsonPrimitive());
+                } else {
+                    toList(node.child(key), element, async);
+                }
+            } else {
+                if (PROJECT_DEBUG && LOGGING_LEVEL > 2) info("PARSED -> (Variable) %s => &e%s", key, parsed);
+                node.set(key, parsed);
+            }
         }
 
-        static void primitive(String name, JsonPrimitive input, boolean isLocal, Event event) {
-            if (name == null || input == null || event == null) return;
+        static void primitive(BulkVariableWriter.Node node, String key, JsonPrimitive input) {
             Object o = jsonToType(defaultConverter(input));
-            if (o != null) {
-                if (PROJECT_DEBUG && LOGGING_LEVEL > 2)  info("PRIMITIVE -> (Variable) %s => &e%s", name, input);
+            if (o != null && PROJECT_DEBUG && LOGGING_LEVEL > 2) info("PRIMITIVE -> (Variable) %s => &e%s", key, input);
+            node.set(key, o);
+        }
+
+        /**
+         * Collect the variables of the json, nothing is written to Skript until the writer is committed.
+         * When async, serialized objects are read to Bukkit objects on the commit.
+         */
+        static BulkVariableWriter collect(String var, JsonElement json, boolean isLocal, boolean async) {
+            BulkVariableWriter writer = new BulkVariableWriter(var, isLocal);
+            toList(writer.root(), json, async);
+            return writer;
+        }
+
+        /**
+         * The json to map, a primitive json is set to the variable right away.
+         *
+         * @return the json object/array or null when there is nothing more to map
+         */
+        private JsonElement prepare(Event e) {
+            JsonElement json = ParserUtil.parse(jsonInput.getSingle(e));
+            if (json == null) return null;
+            if (json.isJsonPrimitive()) {
+                Object o = jsonToType(defaultConverter(json));
+                if (o != null) Variables.setVariable(listName(e) + SEPARATOR, o, e, isLocal);
+                return null;
             }
-            assert o != null;
-            Variables.setVariable(name, o, event, isLocal);
+            return json;
+        }
+
+        private String listName(Event e) {
+            String vv = variableString.getSingle(e);
+            return vv.substring(0, vv.length() - 3);
         }
 
         @Override
         protected void execute(@NotNull Event e) {
-            Object jsonInputSingle = jsonInput.getSingle(e);
-            JsonElement json = ParserUtil.parse(jsonInputSingle);
-            String vv = variableString.getSingle(e);
-            String var = vv.substring(0, vv.length() - 3);
-            if (json == null) return;
-            if (async) {
-                CompletableFuture.runAsync(() -> toList(var + SEPARATOR, json, isLocal, e));
-            } else {
-                toList(var + SEPARATOR, json, isLocal, e);
-            }
+            JsonElement json = prepare(e);
+            if (json != null) collect(listName(e), json, isLocal, false).commit(e);
+        }
+
+        @Override
+        protected TriggerItem walk(@NotNull Event e) {
+            if (!async) return super.walk(e);
+            debug(e, true);
+            JsonElement json = prepare(e);
+            if (json == null) return getNext();
+            String var = listName(e);
+            SkriptReflection.delay(e);
+            var vars = Variables.copyLocalVariables(e);
+            CompletableFuture.supplyAsync(() -> collect(var, json, isLocal, true))
+                    .whenComplete((writer, err) -> {
+                        if (err != null) error(err, null, node);
+                        Bukkit.getScheduler().runTask(SkJson.getInstance(), () -> {
+                            Variables.setLocalVariables(e, vars);
+                            if (writer != null) writer.commit(e);
+                            if (getNext() != null) TriggerItem.walk(getNext(), e);
+                            Variables.removeLocals(e);
+                        });
+                    });
+            return null;
         }
 
         @Override
@@ -713,6 +832,8 @@ public abstract class JsonBase {
         public boolean init(Expression<?> @NotNull [] exprs, int matchedPattern, @NotNull Kleenean isDelayed, @NotNull ParseResult parseResult) {
             Expression<?> unparsedObject = defendExpression(exprs[1]);
             async = parseResult.hasTag("async");
+            // the async errors are logged on a worker thread, where the parser has no node
+            node = getParser().getNode();
             if (!unparsedObject.getReturnType().isAssignableFrom(JsonElement.class)) {
                 simpleError("You can map only Json or stringify json (String)", getParser().getNode());
                 return false;
@@ -722,6 +843,7 @@ public abstract class JsonBase {
                 if (var.isList()) {
                     isLocal = var.isLocal();
                     variableString = var.getName();
+                    if (async) getParser().setHasDelayBefore(Kleenean.TRUE);
                     return canInitSafely(unparsedObject);
                 }
             }
@@ -749,78 +871,18 @@ public abstract class JsonBase {
         private VariableString variable;
         private boolean isLocal;
 
-        private static JsonElement convert(String var, boolean isLocal, boolean nullable, Event event) {
-            Map<String, Object> variable = (Map<String, Object>) getVariable(var + "*", event, isLocal);
-            if (variable == null) return nullable ? null : new JsonObject();
-            List<String> checkKeys = variable.keySet().stream().filter(Objects::nonNull).filter(f -> !f.equals("*")).toList();
-
-            if (checkKeys.stream().allMatch(Util::isNumber)) {
-                if (Util.isIncrement(checkKeys.toArray())) {
-                    JsonArray structure = new JsonArray();
-                    checkKeys.forEach(key -> {
-                        Object value = subNode(var + key, isLocal, event);
-                        JsonElement data = GsonConverter.toJsonTree(value);
-                        if (value instanceof JsonPrimitive) {
-                            JsonElement primitive = defaultConverter(value);
-                            if (Util.isNumber(primitive)) {
-                                structure.add(defaultConverter(value));
-                            } else {
-                                structure.add(primitive);
-                            }
-                        } else {
-                            structure.add(data);
-                        }
-                    });
-                    return structure;
-                } else {
-                    JsonObject structure = new JsonObject();
-                    checkKeys.forEach(key -> {
-                        JsonElement data = GsonConverter.toJsonTree(subNode(var + key, isLocal, event));
-                        if (data instanceof JsonPrimitive primitive) {
-                            structure.add(key, primitive);
-                        } else {
-                            structure.add(key, data);
-                        }
-                    });
-                    return structure;
-                }
-            } else {
-                JsonObject structure = new JsonObject();
-                checkKeys.forEach(key -> {
-                    JsonElement data = GsonConverter.toJsonTree(subNode(var + key, isLocal, event));
-                    if (data instanceof JsonPrimitive) {
-                        JsonPrimitive primitive = data.getAsJsonPrimitive();
-                        structure.add(key, primitive);
-                    } else {
-                        structure.add(key, data);
-                    }
-                });
-                return structure;
-            }
-        }
-
-        static Object subNode(String name, boolean isLocal, Event event) {
-            Object variable = getVariable(name, event, isLocal);
-            if (variable == null) {
-                variable = convert(name + SEPARATOR, isLocal, false, event);
-            } else if (variable == Boolean.TRUE) {
-                Object subVariable = convert(name + SEPARATOR, isLocal, true, event);
-                if (subVariable != null) {
-                    variable = subVariable;
-                }
-            }
-
-            if (!(variable instanceof String || variable instanceof Number || variable instanceof Boolean || variable instanceof JsonElement || variable instanceof Map || variable instanceof List)) {
-                if (variable != null) variable = parse(variable);
-            }
-            return variable;
+        /**
+         * View of the list of the event, for writing the list without building the json.
+         */
+        public @Nullable VariableJsonView view(@NotNull Event e) {
+            return VariableJsonView.of(variable.toString(e), e, isLocal);
         }
 
         @Override
         protected @Nullable JsonElement @NotNull [] get(@NotNull Event e) {
             String variableName = variable.toString(e);
-            String var = (variableName.substring(0, variableName.length() - 1));
-            return new JsonElement[]{convert(var, isLocal, true, e)};
+            VariableJsonView view = VariableJsonView.of(variableName, e, isLocal);
+            return new JsonElement[]{view == null ? null : view.toJson()};
         }
 
         @Override
@@ -946,7 +1008,7 @@ public abstract class JsonBase {
                 } else {
                     String element = value.toString();
                     if (directly) {
-                        final Queue<PatternUtil.keyStruct> list = convertStringToKeys(element, PATH_VARIABLE_DELIMITER, true);
+                        final CompiledPath list = PatternUtil.compile(element, PATH_VARIABLE_DELIMITER, true);
                         final JsonElement result = JsonParser.search(json).key(list);
                         if (result == null || result.isJsonNull()) {
                             found = false;
@@ -1195,7 +1257,7 @@ public abstract class JsonBase {
             if (json == null) return new String[0];
             if (pathExpression != null) {
                 path = pathExpression.getSingle(event);
-                json = JsonParser.search(json).key(convertStringToKeys(path));
+                json = JsonParser.search(json).key(PatternUtil.compile(path));
             }
             if (json == null || json.isJsonNull()) {
                 simpleError("&cThe path what you search for doesn't exist.");
@@ -1230,4 +1292,86 @@ public abstract class JsonBase {
             return LiteralUtils.canInitSafely(expressions[0]) && LiteralUtils.canInitSafely(expressions[1]);
         }
     }
+
+    @Name("Json query")
+    @Description({
+            "Returns all values matched by JSONPath-like query in one pass.",
+            "Supported: `$` root, `.key`/`['key']`/`key::key`, `*` wildcard, `..key` recursive descent,",
+            "`[0]`, `[-1]` indexes, `[1:3]`, `[::-1]` slices and filters like `[?(@.level > 10 && @.name != 'x')]`.",
+            "Queries are compiled only once."
+    })
+    @Examples({
+            "on script load:",
+            "\tset {_json} to json from \"{players: [{name: 'a', level: 5}, {name: 'b', level: 15}]}\"",
+            "\tsend json query \"$.players[?(@.level > 10)].name\" in {_json}",
+            "\tsend json query \"..level\" in {_json}"
+    })
+    @Since("4.1.0")
+    public static class JsonQueryExpression extends SimpleExpression<Object> {
+
+        static {
+            SkJsonElements.registerExpression(JsonQueryExpression.class, Object.class, ExpressionType.COMBINED,
+                    "json query %string% in %json%"
+            );
+        }
+
+        private Expression<String> queryExpression;
+        private Expression<JsonElement> jsonExpression;
+        private String literalQuery;
+
+        @Override
+        protected @Nullable Object @NotNull [] get(@NotNull Event e) {
+            JsonElement json = jsonExpression.getSingle(e);
+            if (json == null) return new Object[0];
+            // compiled queries are cached per path delimiter, so a literal follows a delimiter changed by a reload
+            String input = literalQuery != null ? literalQuery : queryExpression.getSingle(e);
+            if (input == null) return new Object[0];
+            JsonQuery query;
+            try {
+                query = JsonQuery.compile(input);
+            } catch (JsonParserException ex) {
+                simpleError(ex.getMessage());
+                return new Object[0];
+            }
+            List<Object> results = new ArrayList<>();
+            query.select(json, match -> {
+                Object assigned = match.isJsonPrimitive() ? jsonToType(match) : from(match);
+                results.add(assigned == null ? match : assigned);
+                return true;
+            });
+            return results.toArray(new Object[0]);
+        }
+
+        @Override
+        public boolean isSingle() {
+            return false;
+        }
+
+        @Override
+        public @NotNull Class<?> getReturnType() {
+            return Object.class;
+        }
+
+        @Override
+        public @NotNull String toString(@Nullable Event e, boolean debug) {
+            return "json query " + queryExpression.toString(e, debug) + " in " + jsonExpression.toString(e, debug);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean init(Expression<?> @NotNull [] exprs, int matchedPattern, @NotNull Kleenean isDelayed, @NotNull ParseResult parseResult) {
+            queryExpression = (Expression<String>) exprs[0];
+            jsonExpression = defendExpression(exprs[1]);
+            if (queryExpression instanceof Literal<String> literal && literal.getSingle() != null) {
+                try {
+                    JsonQuery.compile(literal.getSingle());
+                    literalQuery = literal.getSingle();
+                } catch (JsonParserException ex) {
+                    Skript.error(ex.getMessage());
+                    return false;
+                }
+            }
+            return canInitSafely(jsonExpression);
+        }
+    }
 }
@@ -0,0 +1,148 @@
+package cz.coffee.skjson.skript.base;
+
+import ch.njol.skript.config.SectionNode;
+import ch.njol.skript.doc.Description;
+import ch.njol.skript.doc.Examples;
+import ch.njol.skript.doc.Name;
+import ch.njol.skript.doc.Since;
+import ch.njol.skript.lang.Expression;
+import ch.njol.skript.lang.Section;
+import ch.njol.skript.lang.SkriptParser.ParseResult;
+import ch.njol.skript.lang.TriggerItem;
+import ch.njol.skript.util.LiteralUtils;
+import ch.njol.skript.variables.Variables;
+import ch.njol.util.Kleenean;
+import com.google.gson.JsonElement;
+import cz.coffee.skjson.SkJson;
+import cz.coffee.skjson.SkJsonElements;
+import cz.coffee.skjson.api.SkriptReflection;
+import cz.coffee.skjson.json.JsonParser;
+import cz.coffee.skjson.utils.CompiledPath;
+import cz.coffee.skjson.utils.LiteralPath;
+import cz.coffee.skjson.utils.PatternUtil;
+import org.bukkit.Bukkit;
+import org.bukkit.event.Event;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static cz.coffee.skjson.api.ConfigRecords.LOOP_TICK_BUDGET;
+
+@Name("Loop spread over ticks")
+@Description({
+        "Same as `loop values of %json%`, but the loop runs at most `loop-tick-budget` milliseconds (config.yml) per tick,",
+        "the rest of the values is looped in the next ticks (same as after a delay), so big jsons don't lag the server.",
+        "The values are taken when the loop starts, use json-key and json-value to get them.",
+        "`exit loop` and `continue` work only with the normal loops."
+})
+@Examples({
+        "command cleanup:",
+        "\ttrigger:",
+        "\t\tset {_data} to json from json file \"plugins/data/players.json\"",
+        "\t\tloop values \"states\" of {_data} spread over ticks:",
+        "\t\t\tif json-value is \"inactive\":",
+        "\t\t\t\tadd json-key to {_inactive::*}",
+        "\t\tsend \"%size of {_inactive::*}% inactive players\""
+})
+@Since("4.1.0")
+public class JsonSpreadLoopSection extends Section {
+
+    static {
+        SkJsonElements.registerSection(JsonSpreadLoopSection.class, "loop values [%-string%] of %json% spread over ticks");
+    }
+
+    private final Map<Event, Iterator<Object>> iterators = new WeakHashMap<>();
+    private final Map<Event, Object> current = new WeakHashMap<>();
+    private final Map<Event, Long> chunkStarts = new WeakHashMap<>();
+    private Expression<JsonElement> jsonInput;
+    private Expression<String> pathInput;
+    private LiteralPath literalPath;
+    private @Nullable TriggerItem actualNext;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean init(Expression<?> @NotNull [] exprs, int matchedPattern, @NotNull Kleenean isDelayed, @NotNull ParseResult parseResult, @NotNull SectionNode sectionNode, @NotNull List<TriggerItem> triggerItems) {
+        pathInput = (Expression<String>) exprs[0];
+        jsonInput = LiteralUtils.defendExpression(exprs[1]);
+        literalPath = PatternUtil.compileLiteral(pathInput, false);
+        // the loop may continue in the next tick before any of its items
+        getParser().setHasDelayBefore(Kleenean.TRUE);
+        loadOptionalCode(sectionNode);
+        super.setNext(this);
+        return LiteralUtils.canInitSafely(jsonInput);
+    }
+
+    /**
+     * The current {@link JsonBase.LoopExpression.Pair} of the loop.
+     */
+    public @Nullable Object getCurrent(@NotNull Event e) {
+        return current.get(e);
+    }
+
+    private Iterator<Object> iterator(Event e) {
+        JsonElement json = jsonInput.getSingle(e);
+        if (json != null && pathInput != null) {
+            CompiledPath path = literalPath != null ? literalPath.get() : PatternUtil.compile(pathInput.getSingle(e));
+            json = path.isEmpty() ? null : JsonParser.search(json).key(path);
+        }
+        return json == null ? Collections.emptyIterator() : JsonBase.Elements.pairs(json);
+    }
+
+    @Override
+    protected @Nullable TriggerItem walk(@NotNull Event e) {
+        Iterator<Object> iterator = iterators.get(e);
+        if (iterator == null) {
+            iterator = iterator(e);
+            iterators.put(e, iterator);
+            chunkStarts.put(e, System.nanoTime());
+        }
+        if (!iterator.hasNext()) {
+            exit(e);
+            debug(e, false);
+            return actualNext;
+        }
+        if (System.nanoTime() - chunkStarts.get(e) >= TimeUnit.MILLISECONDS.toNanos(Math.max(1, LOOP_TICK_BUDGET))) {
+            pause(e);
+            return null;
+        }
+        current.put(e, iterator.next());
+        return walk(e, true);
+    }
+
+    /**
+     * Continue the loop in the next tick, with the same local variables.
+     */
+    private void pause(Event e) {
+        SkriptReflection.delay(e);
+        var vars = Variables.copyLocalVariables(e);
+        Bukkit.getScheduler().runTask(SkJson.getInstance(), () -> {
+            Variables.setLocalVariables(e, vars);
+            chunkStarts.put(e, System.nanoTime());
+            TriggerItem.walk(this, e);
+            Variables.removeLocals(e);
+        });
+    }
+
+    private void exit(Event e) {
+        iterators.remove(e);
+        current.remove(e);
+        chunkStarts.remove(e);
+    }
+
+    @Override
+    public @NotNull JsonSpreadLoopSection setNext(@Nullable TriggerItem next) {
+        actualNext = next;
+        return this;
+    }
+
+    @Override
+    public @NotNull String toString(@Nullable Event e, boolean debug) {
+        return "loop values " + (pathInput == null ? "" : pathInput.toString(e, debug) + " ") + "of " + jsonInput.toString(e, debug) + " spread over ticks";
+    }
+}
@@ -31,4 +31,13 @@ public interface SimpleConverter<T> {
      */
     T fromJson(JsonObject json);
 
+    /**
+     * Whether {@link #fromJson(JsonObject)} changes the given json, such a converter gets a copy of the json.
+     *
+     * @return true when the json is changed
+     */
+    default boolean mutatesInput() {
+        return true;
+    }
+
 }
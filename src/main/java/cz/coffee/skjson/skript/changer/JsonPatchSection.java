@@ -0,0 +1,166 @@
+package cz.coffee.skjson.skript.changer;
+
+import ch.njol.skript.ScriptLoader;
+import ch.njol.skript.Skript;
+import ch.njol.skript.config.Node;
+import ch.njol.skript.config.SectionNode;
+import ch.njol.skript.doc.Description;
+import ch.njol.skript.doc.Examples;
+import ch.njol.skript.doc.Name;
+import ch.njol.skript.doc.Since;
+import ch.njol.skript.lang.Expression;
+import ch.njol.skript.lang.ParseContext;
+import ch.njol.skript.lang.Section;
+import ch.njol.skript.lang.SkriptParser;
+import ch.njol.skript.lang.SkriptParser.ParseResult;
+import ch.njol.skript.lang.TriggerItem;
+import ch.njol.skript.log.ParseLogHandler;
+import ch.njol.skript.log.SkriptLogger;
+import ch.njol.skript.util.LiteralUtils;
+import ch.njol.util.Kleenean;
+import com.google.gson.JsonElement;
+import cz.coffee.skjson.SkJsonElements;
+import cz.coffee.skjson.json.JsonParser;
+import cz.coffee.skjson.json.JsonParserException;
+import cz.coffee.skjson.json.JsonPatcher;
+import cz.coffee.skjson.parser.ParserUtil;
+import org.bukkit.event.Event;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static cz.coffee.skjson.utils.Logger.simpleError;
+
+@Name("Patch json")
+@Description({
+        "Applies many changes to one json at once (JSON Patch, RFC 6902).",
+        "Each line of the section is one operation:",
+        "\t`add <path> with <value>`, `replace <path> with <value>`, `test <path> is <value>`,",
+        "\t`remove <path>`, `move <path> to <path>`, `copy <path> to <path>`",
+        "The path is a JSON Pointer (`/stats/kills`, `/list/-` for the end of a list) or a regular skJson path (`stats::kills`).",
+        "Operations run in order, when one of them fails (e.g. a test) the rest is skipped."
+})
+@Examples({
+        "on script load:",
+        "\tset {_json} to json from \"{stats: {kills: 0, deaths: 0}, list: []}\"",
+        "\tpatch {_json}:",
+        "\t\treplace \"/stats/kills\" with 10",
+        "\t\tadd \"/stats/level\" with 2",
+        "\t\tadd \"/list/-\" with \"first\"",
+        "\t\tremove \"/stats/deaths\"",
+})
+@Since("4.1.0")
+public class JsonPatchSection extends Section {
+
+    static {
+        SkJsonElements.registerSection(JsonPatchSection.class, "patch [json] %json%");
+    }
+
+    private static final Pattern LINE = Pattern.compile("^(add|replace|test|remove|move|copy)\\s+(.+)$", Pattern.CASE_INSENSITIVE);
+
+    private record Line(JsonPatcher.Op op, Expression<? extends String> path, Expression<?> second) {
+    }
+
+    private final List<Line> lines = new ArrayList<>();
+    private Expression<JsonElement> jsonExpression;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean init(Expression<?> @NotNull [] exprs, int matchedPattern, @NotNull Kleenean isDelayed, @NotNull ParseResult parseResult, @NotNull SectionNode sectionNode, @NotNull List<TriggerItem> triggerItems) {
+        jsonExpression = LiteralUtils.defendExpression(exprs[0]);
+        for (Node node : sectionNode) {
+            String key = node.getKey();
+            if (key == null || key.isBlank()) continue;
+            if (node instanceof SectionNode) {
+                Skript.error("Patch operations cannot have a section: " + key);
+                return false;
+            }
+            Line line = parseLine(ScriptLoader.replaceOptions(key).trim());
+            if (line == null) return false;
+            lines.add(line);
+        }
+        return LiteralUtils.canInitSafely(jsonExpression);
+    }
+
+    private @Nullable Line parseLine(String text) {
+        Matcher matcher = LINE.matcher(text);
+        if (!matcher.matches()) {
+            Skript.error("Unknown patch operation '" + text + "', allowed are add, replace, test, remove, move and copy");
+            return null;
+        }
+        JsonPatcher.Op op = JsonPatcher.Op.valueOf(matcher.group(1).toUpperCase(Locale.ENGLISH));
+        String rest = matcher.group(2);
+        if (op == JsonPatcher.Op.REMOVE) {
+            Expression<? extends String> path = parse(rest, String.class);
+            if (path == null) {
+                Skript.error("Cannot understand the path '" + rest + "'");
+                return null;
+            }
+            return new Line(op, path, null);
+        }
+        String separator = switch (op) {
+            case MOVE, COPY -> " to ";
+            case TEST -> " is ";
+            default -> " with ";
+        };
+        int at = -1;
+        while ((at = rest.toLowerCase(Locale.ENGLISH).indexOf(separator, at + 1)) != -1) {
+            Expression<? extends String> path = parse(rest.substring(0, at), String.class);
+            if (path == null) continue;
+            Expression<?> second = op == JsonPatcher.Op.MOVE || op == JsonPatcher.Op.COPY
+                    ? parse(rest.substring(at + separator.length()), String.class)
+                    : parse(rest.substring(at + separator.length()), Object.class);
+            if (second == null) continue;
+            return new Line(op, path, second);
+        }
+        Skript.error("Cannot understand the patch operation '" + text + "', expected '" + op.name().toLowerCase(Locale.ENGLISH) + " <path>" + separator + "<value>'");
+        return null;
+    }
+
+    private static <T> @Nullable Expression<? extends T> parse(String text, Class<T> type) {
+        ParseLogHandler log = SkriptLogger.startParseLogHandler();
+        try {
+            Expression<? extends T> expression = new SkriptParser(text.trim(), SkriptParser.ALL_FLAGS, ParseContext.DEFAULT).parseExpression(type);
+            if (expression == null) return null;
+            expression = LiteralUtils.defendExpression(expression);
+            if (!LiteralUtils.canInitSafely(expression)) return null;
+            log.printLog();
+            return expression;
+        } finally {
+            log.stop();
+        }
+    }
+
+    @Override
+    protected @Nullable TriggerItem walk(@NotNull Event e) {
+        JsonElement json = jsonExpression.getSingle(e);
+        if (json != null) {
+            JsonPatcher patcher = JsonParser.patch(json);
+            for (Line line : lines) {
+                String path = line.path().getSingle(e);
+                switch (line.op()) {
+                    case REMOVE -> patcher.remove(path);
+                    case MOVE -> patcher.move(path, (String) line.second().getSingle(e));
+                    case COPY -> patcher.copy(path, (String) line.second().getSingle(e));
+                    default -> patcher.operation(new JsonPatcher.Operation(line.op(), path, null, ParserUtil.parse(line.second().getSingle(e))));
+                }
+            }
+            try {
+                patcher.apply();
+            } catch (JsonParserException ex) {
+                simpleError(ex.getMessage());
+            }
+        }
+        return super.walk(e, false);
+    }
+
+    @Override
+    public @NotNull String toString(@Nullable Event e, boolean debug) {
+        return "patch json " + jsonExpression.toString(e, debug);
+    }
+}
@@ -21,8 +21,11 @@ import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
 import cz.coffee.skjson.SkJsonElements;
 import cz.coffee.skjson.json.JsonParser;
+import cz.coffee.skjson.json.ListIndex;
 import cz.coffee.skjson.parser.ParserUtil;
 import cz.coffee.skjson.skript.base.JsonBase;
+import cz.coffee.skjson.utils.CompiledPath;
+import cz.coffee.skjson.utils.LiteralPath;
 import cz.coffee.skjson.utils.Logger;
 import cz.coffee.skjson.utils.PatternUtil;
 import org.bukkit.event.Event;
@@ -36,7 +39,6 @@ import static cz.coffee.skjson.api.ConfigRecords.*;
 import static cz.coffee.skjson.parser.ParserUtil.GsonConverter;
 import static cz.coffee.skjson.utils.Logger.error;
 import static cz.coffee.skjson.utils.Logger.info;
-import static cz.coffee.skjson.utils.PatternUtil.convertStringToKeys;
 
 public abstract class SkJsonChanger {
 
@@ -74,6 +76,7 @@ public abstract class SkJsonChanger {
         private int line, tag;
         private Expression<JsonElement> inputJsonExpression;
         private Expression<String> pathExpression;
+        private LiteralPath literalPath;
         private Expression<Integer> integerExpression;
         private boolean isNested;
         private Expression<?> dataExpression;
@@ -144,26 +147,19 @@ public abstract class SkJsonChanger {
                     }
                     JsonElement json = JsonNull.INSTANCE;
                     Object parsedJson;
-                    String path;
                     for (Object delta : inputDelta) {
                         parsedJson = parseAliases(delta);
                         if (((LinkedList<JsonElement>) parsedJson).isEmpty()) parsedJson = ParserUtil.parse(delta);
                         try {
                             if (isNested) {
                                 JsonElement input = inputJsonExpression.getSingle(e);
-                                path = pathExpression.getSingle(e);
-                                LinkedList<PatternUtil.keyStruct> keys = convertStringToKeys(path, PATH_VARIABLE_DELIMITER, false);
-                                JsonElement old = json;
-                                if (!keys.isEmpty()) json = JsonParser.search(input).key(keys);
-                                var last = keys.getLast().key();
+                                CompiledPath keys = literalPath != null ? literalPath.get() : PatternUtil.compile(pathExpression.getSingle(e), PATH_VARIABLE_DELIMITER, false);
+                                if (keys.isEmpty()) return;
+                                json = JsonParser.search(input).key(keys);
 
                                 if (json == null) {
-                                    json = old;
                                     JsonParser.change(input).value(keys, new JsonArray());
                                     json = JsonParser.search(input).key(keys);
-                                    keys.clear();
-                                    keys.add(new PatternUtil.keyStruct(last, PatternUtil.KeyType.LIST));
-                                    json = JsonParser.search(json).key(keys);
                                 }
                             } else {
                                 json = inputJsonExpression.getSingle(e);
@@ -172,12 +168,18 @@ public abstract class SkJsonChanger {
 
 
                             if (json.isJsonArray()) {
+                                JsonArray array = json.getAsJsonArray();
                                 if (parsedJson instanceof JsonElement element) {
-                                    if (!element.isJsonNull()) json.getAsJsonArray().add(element);
+                                    if (!element.isJsonNull()) {
+                                        array.add(element);
+                                        ListIndex.added(array, element);
+                                    }
                                 } else {
                                     assert parsedJson != null;
                                     for (JsonElement element : ((LinkedList<JsonElement>) parsedJson)) {
-                                        if (!element.isJsonNull()) json.getAsJsonArray().add(element);
+                                        if (element.isJsonNull()) continue;
+                                        array.add(element);
+                                        ListIndex.added(array, element);
                                     }
                                 }
                             } else {
@@ -198,11 +200,9 @@ public abstract class SkJsonChanger {
                     }
                     JsonElement json;
                     Object parsedJson;
-                    String path;
                     boolean isValue = result.mark == 1 && line == 1;
                     try {
-                        path = pathExpression.getSingle(e);
-                        LinkedList<PatternUtil.keyStruct> keys = PatternUtil.convertStringToKeys(path, PATH_VARIABLE_DELIMITER, false);
+                        CompiledPath keys = literalPath != null ? literalPath.get() : PatternUtil.compile(pathExpression.getSingle(e), PATH_VARIABLE_DELIMITER, false);
                         json = inputJsonExpression.getSingle(e);
                         for (Object delta : inputDelta) {
                             if (keys.isEmpty()) return;
@@ -216,8 +216,6 @@ public abstract class SkJsonChanger {
                                     JsonParser.change(json).value(keys, GsonConverter.toJsonTree(parsedJson, LinkedList.class));
                                 }
                             } else {
-                                keys = PatternUtil.convertStringToKeys(path, PATH_VARIABLE_DELIMITER);
-                                if (keys.isEmpty()) return;
                                 if (delta instanceof String st) {
                                     JsonParser.change(json).key(keys, st);
                                 }
@@ -249,6 +247,7 @@ public abstract class SkJsonChanger {
                 return true;
             } else {
                 pathExpression = (Expression<String>) exprs[0];
+                literalPath = PatternUtil.compileLiteral(pathExpression, false);
                 inputJsonExpression = LiteralUtils.defendExpression(exprs[1]);
                 isNested = pathExpression != null;
                 return LiteralUtils.canInitSafely(inputJsonExpression);
@@ -279,6 +278,7 @@ public abstract class SkJsonChanger {
 
         private Expression<JsonElement> jsonInput;
         private Expression<String> pathInput;
+        private LiteralPath literalValuePath, literalKeyPath;
         private Expression<?> objectsInput;
         private ParseResult result;
         private int line;
@@ -322,6 +322,8 @@ public abstract class SkJsonChanger {
             if (line == 0) {
                 jsonInput = LiteralUtils.defendExpression(exprs[1]);
                 pathInput = (Expression<String>) exprs[0];
+                literalValuePath = PatternUtil.compileLiteral(pathInput, true);
+                literalKeyPath = PatternUtil.compileLiteral(pathInput, false);
                 return LiteralUtils.canInitSafely(jsonInput);
             } else if (line == 1 || line == 2) {
                 pathInput = (Expression<String>) exprs[1];
@@ -353,12 +355,12 @@ public abstract class SkJsonChanger {
                 String path;
                 for (Object delta : inputDelta) {
                     try {
-                        path = pathInput.getSingle(e);
-                        LinkedList<PatternUtil.keyStruct> keys = PatternUtil.convertStringToKeys(path, PATH_VARIABLE_DELIMITER, true);
+                        path = literalValuePath != null ? null : pathInput.getSingle(e);
+                        CompiledPath keys = literalValuePath != null ? literalValuePath.get() : PatternUtil.compile(path, PATH_VARIABLE_DELIMITER, true);
                         json = jsonInput.getSingle(e);
                         assert !keys.isEmpty();
                         if (!isValue) {
-                            keys = PatternUtil.convertStringToKeys(path, PATH_VARIABLE_DELIMITER);
+                            keys = literalKeyPath != null ? literalKeyPath.get() : PatternUtil.compile(path, PATH_VARIABLE_DELIMITER);
                             if (keys.isEmpty()) return;
                             if (delta instanceof String st) JsonParser.change(json).key(keys, st);
                         } else {
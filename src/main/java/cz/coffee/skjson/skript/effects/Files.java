@@ -17,15 +17,18 @@ import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
 import cz.coffee.skjson.SkJsonElements;
 import cz.coffee.skjson.api.FileHandler;
+import cz.coffee.skjson.api.VariableJsonView;
 import cz.coffee.skjson.json.JsonParser;
+import cz.coffee.skjson.parser.ItemJsonWriter;
 import cz.coffee.skjson.parser.ParserUtil;
+import cz.coffee.skjson.skript.base.JsonBase;
+import cz.coffee.skjson.utils.CompiledPath;
 import cz.coffee.skjson.utils.PatternUtil;
 import org.bukkit.event.Event;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
-import java.util.LinkedList;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
@@ -128,7 +131,7 @@ public abstract class Files {
             FileHandler.get(path).whenComplete((json, error) -> {
                 if (json == null) return;
                 String key = pathInput.getSingle(e);
-                LinkedList<PatternUtil.keyStruct> keys = PatternUtil.convertStringToKeys(key);
+                CompiledPath keys = PatternUtil.compile(key);
                 if (keys.isEmpty()) return;
 
                 JsonElement value = ParserUtil.parse(unparsedValue);
@@ -191,7 +194,20 @@ public abstract class Files {
         @Override
         protected void execute(@NotNull Event e) {
             String file = inputFile.getSingle(e);
+            if (unparsedInput instanceof JsonBase.ParseVariable form) {
+                // the list is streamed before the code continues, so its local variables aren't changed meanwhile
+                VariableJsonView view = form.view(e);
+                if (view != null) {
+                    FileHandler.write(file, view::write).join();
+                    return;
+                }
+            }
             Object unparsed = unparsedInput.getSingle(e);
+            if (ItemJsonWriter.canWrite(unparsed)) {
+                // the item is read while it's written, so the code continues only after the write
+                FileHandler.write(file, writer -> ItemJsonWriter.write(writer, unparsed)).join();
+                return;
+            }
             JsonElement parsedJson = ParserUtil.parse(unparsed, true);
             CompletableFuture.runAsync(() -> FileHandler.write(file, parsedJson).join());
         }
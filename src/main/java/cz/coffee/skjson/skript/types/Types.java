@@ -16,6 +16,7 @@ import cz.coffee.skjson.api.requests.RequestMethod;
 import cz.coffee.skjson.api.requests.Webhook;
 import cz.coffee.skjson.json.JsonParser;
 import cz.coffee.skjson.parser.ParserUtil;
+import cz.coffee.skjson.utils.CompiledPath;
 import cz.coffee.skjson.utils.PatternUtil;
 import org.bukkit.Chunk;
 import org.bukkit.Location;
@@ -31,7 +32,6 @@ import org.skriptlang.skript.lang.converter.Converters;
 import java.io.File;
 import java.io.StreamCorruptedException;
 import java.util.Collection;
-import java.util.LinkedList;
 import java.util.List;
 
 import static cz.coffee.skjson.api.ConfigRecords.PATH_VARIABLE_DELIMITER;
@@ -141,35 +141,33 @@ abstract class Types {
                                                         if (JsonParser.isExpression(jsonData)) {
                                                             if (jsonData.isJsonObject()) {
                                                                 JsonObject parsed = jsonData.getAsJsonObject();
-                                                                LinkedList<keyStruct> path = new LinkedList<>();
+                                                                CompiledPath path = CompiledPath.EMPTY;
                                                                 String pathString = parsed.get("element-path").getAsString();
                                                                 String index = parsed.get("element-index").toString();
                                                                 if (!pathString.equals("Undefined")) {
-                                                                    path = PatternUtil.convertStringToKeys(pathString, PATH_VARIABLE_DELIMITER);
+                                                                    path = PatternUtil.compile(pathString, PATH_VARIABLE_DELIMITER);
                                                                     assert !path.isEmpty();
                                                                 }
-                                                                path.add(new keyStruct(index, PatternUtil.KeyType.KEY));
-                                                                JsonParser.remove(mainJson).byIndex(path);
+                                                                JsonParser.remove(mainJson).byIndex(path.child(new keyStruct(index, PatternUtil.KeyType.KEY)));
                                                             }
                                                         }
                                                     } else {
                                                         if (unparsed instanceof List<?> list) {
                                                             String type = (String) list.get(0);
                                                             String pathString = (String) list.get(2);
-                                                            LinkedList<keyStruct> path = new LinkedList<>();
+                                                            CompiledPath path = CompiledPath.EMPTY;
                                                             Object[] items = (Object[]) list.get(1);
                                                             if (type.equalsIgnoreCase("object")) {
                                                                 boolean isValue = (boolean) list.get(3);
                                                                 if (!pathString.equals("Undefined")) {
-                                                                    path = PatternUtil.convertStringToKeys(pathString, PATH_VARIABLE_DELIMITER, false);
+                                                                    path = PatternUtil.compile(pathString, PATH_VARIABLE_DELIMITER, false);
                                                                     assert !path.isEmpty();
                                                                     for (Object item : items) {
                                                                         JsonElement parsed = parse(item);
                                                                         if (isValue) {
                                                                             JsonParser.remove(mainJson).byValue(path, parsed);
                                                                         } else {
-                                                                            path.add(new keyStruct(item.toString(), PatternUtil.KeyType.KEY));
-                                                                            JsonParser.remove(mainJson).byKey(path);
+                                                                            JsonParser.remove(mainJson).byKey(path.child(new keyStruct(item.toString(), PatternUtil.KeyType.KEY)));
                                                                         }
                                                                     }
                                                                 } else {
@@ -178,14 +176,13 @@ abstract class Types {
                                                                         if (isValue) {
                                                                             JsonParser.remove(mainJson).byValue(path, parsed);
                                                                         } else {
-                                                                            path.add(new keyStruct(item.toString(), PatternUtil.KeyType.KEY));
-                                                                            JsonParser.remove(mainJson).byKey(path);
+                                                                            JsonParser.remove(mainJson).byKey(path.child(new keyStruct(item.toString(), PatternUtil.KeyType.KEY)));
                                                                         }
                                                                     }
                                                                 }
                                                             } else if (type.equalsIgnoreCase("array")) {
                                                                 if (!pathString.equals("Undefined")) {
-                                                                    path = PatternUtil.convertStringToKeys(pathString, PATH_VARIABLE_DELIMITER);
+                                                                    path = PatternUtil.compile(pathString, PATH_VARIABLE_DELIMITER);
                                                                     assert !path.isEmpty();
                                                                     for (Object item : items) {
                                                                         JsonElement parsed = parse(item);
@@ -213,11 +210,10 @@ abstract class Types {
                                                     if (unparsed instanceof List<?> list) {
                                                         String pathString = (String) list.get(2);
                                                         Object[] items = (Object[]) list.get(1);
-                                                        LinkedList<keyStruct> path;
                                                         if (!pathString.equals("Undefined")) {
+                                                            CompiledPath path = PatternUtil.compile(pathString, PATH_VARIABLE_DELIMITER);
                                                             for (Object item : items) {
                                                                 JsonElement parsed = parse(item);
-                                                                path = PatternUtil.convertStringToKeys(pathString, PATH_VARIABLE_DELIMITER);
                                                                 //child
                                                                 JsonParser.remove(mainJson).allByValue(path, parsed);
                                                             }
@@ -225,7 +221,7 @@ abstract class Types {
                                                             for (Object item : items) {
                                                                 JsonElement parsed = parse(item);
                                                                 //root
-                                                                JsonParser.remove(mainJson).allByValue(null, parsed);
+                                                                JsonParser.remove(mainJson).allByValue(CompiledPath.EMPTY, parsed);
                                                             }
                                                         }
                                                     }
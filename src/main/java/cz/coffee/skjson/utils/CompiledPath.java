@@ -0,0 +1,146 @@
+package cz.coffee.skjson.utils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.StringJoiner;
+
+import static cz.coffee.skjson.api.ConfigRecords.PATH_VARIABLE_DELIMITER;
+import static cz.coffee.skjson.utils.PatternUtil.KeyType;
+import static cz.coffee.skjson.utils.PatternUtil.keyStruct;
+
+/**
+ * Immutable, already tokenized json path.
+ * <p>
+ * The segments are split once (with {@link PatternUtil#remap} already applied when requested) and
+ * numeric segments are pre-parsed, so the path can be walked over and over without touching the tokenizer.
+ * Instances are obtained through {@link PatternUtil#compile(String, String, boolean)} which caches them.
+ */
+public final class CompiledPath {
+
+    /**
+     * Marker returned by {@link #index(int)} for segments which are not integers.
+     */
+    public static final int NOT_AN_INDEX = Integer.MIN_VALUE;
+
+    public static final CompiledPath EMPTY = new CompiledPath("", new keyStruct[0]);
+
+    private final String source;
+    private final keyStruct[] segments;
+    private final int[] indexes;
+
+    private CompiledPath(final String source, final keyStruct[] segments) {
+        this.source = source;
+        this.segments = segments;
+        this.indexes = new int[segments.length];
+        for (int i = 0; i < segments.length; i++) {
+            indexes[i] = parseIndex(segments[i].key());
+        }
+    }
+
+    public static CompiledPath of(final String source, final Collection<keyStruct> keys) {
+        if (keys == null || keys.isEmpty()) return EMPTY;
+        return new CompiledPath(source, keys.toArray(new keyStruct[0]));
+    }
+
+    /**
+     * Wraps already tokenized keys (legacy api), the source is rebuilt from the keys.
+     */
+    public static CompiledPath of(final Collection<keyStruct> keys) {
+        if (keys == null || keys.isEmpty()) return EMPTY;
+        StringJoiner joiner = new StringJoiner(PATH_VARIABLE_DELIMITER == null ? "::" : PATH_VARIABLE_DELIMITER);
+        for (keyStruct struct : keys) joiner.add(struct.key());
+        return of(joiner.toString(), keys);
+    }
+
+    /**
+     * Parse the segment as an array index without throwing.
+     *
+     * @param key segment
+     * @return the parsed integer or {@link #NOT_AN_INDEX}
+     */
+    public static int parseIndex(final String key) {
+        if (key == null || key.isEmpty() || key.length() > 11) return NOT_AN_INDEX;
+        int i = 0;
+        boolean negative = false;
+        char first = key.charAt(0);
+        if (first == '-' || first == '+') {
+            if (key.length() == 1) return NOT_AN_INDEX;
+            negative = first == '-';
+            i++;
+        }
+        long value = 0;
+        for (; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c < '0' || c > '9') return NOT_AN_INDEX;
+            value = value * 10 + (c - '0');
+        }
+        if (negative) value = -value;
+        if (value < Integer.MIN_VALUE + 1L || value > Integer.MAX_VALUE) return NOT_AN_INDEX;
+        return (int) value;
+    }
+
+    public int size() {
+        return segments.length;
+    }
+
+    public boolean isEmpty() {
+        return segments.length == 0;
+    }
+
+    public keyStruct segment(int i) {
+        return segments[i];
+    }
+
+    public String key(int i) {
+        return segments[i].key();
+    }
+
+    public KeyType type(int i) {
+        return segments[i].type();
+    }
+
+    public boolean isList(int i) {
+        return segments[i].isList();
+    }
+
+    public int index(int i) {
+        return indexes[i];
+    }
+
+    public boolean isIndex(int i) {
+        return indexes[i] != NOT_AN_INDEX;
+    }
+
+    public String lastKey() {
+        if (segments.length == 0) throw new NoSuchElementException("Empty path");
+        return segments[segments.length - 1].key();
+    }
+
+    /**
+     * Returns a new path with the given segment appended, the current instance stays untouched.
+     */
+    public CompiledPath child(final keyStruct struct) {
+        keyStruct[] copy = Arrays.copyOf(segments, segments.length + 1);
+        copy[segments.length] = struct;
+        String delimiter = PATH_VARIABLE_DELIMITER == null ? "::" : PATH_VARIABLE_DELIMITER;
+        return new CompiledPath(source.isEmpty() ? struct.key() : source + delimiter + struct.key(), copy);
+    }
+
+    /**
+     * Mutable copy of the segments, for the callers which still work with the legacy {@link LinkedList} api.
+     */
+    public LinkedList<keyStruct> toKeys() {
+        return new LinkedList<>(Arrays.asList(segments));
+    }
+
+    public String source() {
+        return source;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
@@ -10,24 +10,57 @@ import static cz.coffee.skjson.utils.PatternUtil.keyStruct;
 
 public abstract class JsonParserI {
     public interface Changer {
-        void key(LinkedList<PatternUtil.keyStruct> keys, String key);
+        void key(CompiledPath path, String key);
 
-        void value(LinkedList<PatternUtil.keyStruct> keys, JsonElement value);
+        void value(CompiledPath path, JsonElement value);
+
+        default void key(LinkedList<PatternUtil.keyStruct> keys, String key) {
+            key(CompiledPath.of(keys), key);
+        }
+
+        default void value(LinkedList<PatternUtil.keyStruct> keys, JsonElement value) {
+            value(CompiledPath.of(keys), value);
+        }
     }
 
     public interface Searcher {
-        JsonElement key(Queue<PatternUtil.keyStruct> keys);
-        Integer indexOfListValue(LinkedList<keyStruct> keys, JsonElement value);
+        JsonElement key(CompiledPath path);
+
+        Integer indexOfListValue(CompiledPath path, JsonElement value);
+
+        default JsonElement key(Queue<PatternUtil.keyStruct> keys) {
+            return key(CompiledPath.of(keys));
+        }
+
+        default Integer indexOfListValue(LinkedList<keyStruct> keys, JsonElement value) {
+            return indexOfListValue(CompiledPath.of(keys), value);
+        }
     }
 
     public interface Remover {
-        void byValue(LinkedList<keyStruct> keys, JsonElement value);
+        void byValue(CompiledPath path, JsonElement value);
+
+        void byIndex(CompiledPath path);
+
+        void byKey(CompiledPath path);
+
+        void allByValue(CompiledPath path, JsonElement value);
+
+        default void byValue(LinkedList<keyStruct> keys, JsonElement value) {
+            byValue(CompiledPath.of(keys), value);
+        }
 
-        void byIndex(LinkedList<keyStruct> keys);
+        default void byIndex(LinkedList<keyStruct> keys) {
+            byIndex(CompiledPath.of(keys));
+        }
 
-        void byKey(LinkedList<keyStruct> keys);
+        default void byKey(LinkedList<keyStruct> keys) {
+            byKey(CompiledPath.of(keys));
+        }
 
-        void allByValue(LinkedList<keyStruct> keys, JsonElement value);
+        default void allByValue(LinkedList<keyStruct> keys, JsonElement value) {
+            allByValue(CompiledPath.of(keys), value);
+        }
     }
 
     public interface Counter {
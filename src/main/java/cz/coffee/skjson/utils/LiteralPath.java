@@ -0,0 +1,45 @@
+package cz.coffee.skjson.utils;
+
+import java.util.Objects;
+
+import static cz.coffee.skjson.api.ConfigRecords.PATH_VARIABLE_DELIMITER;
+
+/**
+ * Json path written as a literal in a script, compiled at parse time by {@link PatternUtil#compileLiteral}.
+ * <p>
+ * The compiled path belongs to the path delimiter it was compiled with, when the delimiter is changed
+ * ({@code /skjson reload}) the path is compiled again on the next {@link #get()}, so loaded scripts
+ * don't keep the old delimiter.
+ */
+public final class LiteralPath {
+
+    private record Compiled(String delimiter, CompiledPath path) {
+    }
+
+    private final String input;
+    private final boolean add;
+    private volatile Compiled compiled;
+
+    LiteralPath(final String input, final boolean add) {
+        this.input = input;
+        this.add = add;
+        this.compiled = new Compiled(PATH_VARIABLE_DELIMITER, PatternUtil.compile(input, null, add));
+    }
+
+    /**
+     * @return the path compiled with the configured delimiter
+     */
+    public CompiledPath get() {
+        Compiled current = compiled;
+        if (!Objects.equals(current.delimiter(), PATH_VARIABLE_DELIMITER)) {
+            current = new Compiled(PATH_VARIABLE_DELIMITER, PatternUtil.compile(input, null, add));
+            compiled = current;
+        }
+        return current.path();
+    }
+
+    @Override
+    public String toString() {
+        return input;
+    }
+}
@@ -1,5 +1,10 @@
 package cz.coffee.skjson.utils;
 
+import ch.njol.skript.lang.Expression;
+import ch.njol.skript.lang.Literal;
+import ch.njol.skript.lang.VariableString;
+import org.jetbrains.annotations.Nullable;
+
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
@@ -18,6 +23,11 @@ public abstract class PatternUtil {
 
     private static final List<String> banned = new ArrayList<>(List.of("$", "#", "^", "\\/", "[", "]", "{", "}", "_", "-"));
 
+    private record PathKey(String input, String delimiter, boolean add) {
+    }
+
+    private static final LruCache<PathKey, CompiledPath> compiledPaths = new LruCache<>(512);
+
     public static void remap(List<keyStruct> keys, boolean withDelim) {
         for (var e = 0; e < keys.size(); e++) {
             var struct = keys.get(e);
@@ -73,6 +83,53 @@ public abstract class PatternUtil {
         return tokenize(input, delimiter.isEmpty(), add, delimiter);
     }
 
+    public static CompiledPath compile(final String input) {
+        return compile(input, null, false);
+    }
+
+    public static CompiledPath compile(final String input, String delimiter) {
+        return compile(input, delimiter, false);
+    }
+
+    /**
+     * Same as {@link #convertStringToKeys(String, String, boolean)} but returns an immutable {@link CompiledPath}
+     * which is cached by (input, delimiter, add), so the same path string is tokenized only once.
+     *
+     * @param input     the path
+     * @param delimiter the delimiter, when null the configured one is used
+     * @param add       apply {@link #remap(List, boolean)} while tokenizing
+     * @return compiled path, never null
+     */
+    public static CompiledPath compile(final String input, String delimiter, boolean add) {
+        if (input == null) return CompiledPath.EMPTY;
+        if (delimiter == null) delimiter = PATH_VARIABLE_DELIMITER;
+        if (banned.contains(delimiter)) {
+            Logger.simpleError("&cYou using not allowed delimiter.. Banned delimiters are &e'%s'", String.join(" ,", banned));
+            return CompiledPath.EMPTY;
+        }
+        final String finalDelimiter = delimiter;
+        return compiledPaths.computeIfAbsent(new PathKey(input, delimiter, add),
+                key -> CompiledPath.of(input, tokenize(input, finalDelimiter.isEmpty(), add, finalDelimiter)));
+    }
+
+    /**
+     * Compile the path already at parse time, when the expression is a literal (or a string without any variable part).
+     * The path is compiled again when the configured delimiter changes, see {@link LiteralPath}.
+     *
+     * @param expression the path expression, can be null for optional paths
+     * @param add        apply {@link #remap(List, boolean)} while tokenizing
+     * @return compiled path or null when the path has to be resolved at runtime
+     */
+    public static @Nullable LiteralPath compileLiteral(@Nullable Expression<String> expression, boolean add) {
+        String input = null;
+        if (expression instanceof Literal<String> literal) {
+            input = literal.getSingle();
+        } else if (expression instanceof VariableString variableString && variableString.isSimple()) {
+            input = variableString.toString(null);
+        }
+        if (input == null) return null;
+        return new LiteralPath(input, add);
+    }
 
     private static LinkedList<keyStruct> tokenize(String input, boolean withDelim, boolean add, String delimiter) {
         LinkedList<keyStruct> keyStructs = new LinkedList<>();